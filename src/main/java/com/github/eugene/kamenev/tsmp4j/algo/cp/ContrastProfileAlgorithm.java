@@ -17,8 +17,16 @@
 
 package com.github.eugene.kamenev.tsmp4j.algo.cp;
 
+import com.github.eugene.kamenev.tsmp4j.algo.mp.BaseMatrixProfile;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPX;
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPXColumns;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPXRollingWindowStatistics;
+import com.github.eugene.kamenev.tsmp4j.utils.Parallel;
+import com.github.eugene.kamenev.tsmp4j.utils.Util;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.function.BiFunction;
 
 /**
@@ -40,6 +48,20 @@ import java.util.function.BiFunction;
 public class ContrastProfileAlgorithm implements
     BiFunction<MPXRollingWindowStatistics, MPXRollingWindowStatistics, ContrastProfile> {
 
+    private final ExecutorService executor;
+
+    /**
+     * @param executor executor to compute self-join and AB-joins concurrently, null for serial
+     *                 execution
+     */
+    public ContrastProfileAlgorithm(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public ContrastProfileAlgorithm() {
+        this(null);
+    }
+
     /**
      * @param positiveTS a timeseries containing at least 2 instances of desired behaviour
      * @param negativeTS a timeseries containing zero instances of desired behaviour
@@ -48,31 +70,104 @@ public class ContrastProfileAlgorithm implements
     @Override
     public ContrastProfile apply(MPXRollingWindowStatistics positiveTS,
         MPXRollingWindowStatistics negativeTS) {
+        return apply(MPXColumns.of(positiveTS), MPXColumns.of(negativeTS));
+    }
+
+    /**
+     * @param positiveTS columns of a timeseries containing at least 2 instances of desired
+     *                   behaviour
+     * @param negativeTS columns of a timeseries containing zero instances of desired behaviour
+     * @return ContrastProfile
+     */
+    public ContrastProfile apply(MPXColumns positiveTS, MPXColumns negativeTS) {
+        return applyAll(positiveTS, new MPXColumns[]{negativeTS})[0];
+    }
+
+    /**
+     * Contrast profiles of a positive series against many negative series, e.g. classes of a
+     * fault library. Positive self-join is computed once, AB-joins run concurrently with it when
+     * an executor is given.
+     *
+     * @param positiveTS columns of a timeseries containing at least 2 instances of desired
+     *                   behaviour
+     * @param negativeTS columns of timeseries containing zero instances of desired behaviour
+     * @return ContrastProfile for every negative series
+     */
+    public ContrastProfile[] applyAll(MPXColumns positiveTS, MPXColumns[] negativeTS) {
         var m = positiveTS.windowSize();
-        var pN = positiveTS.dataSize() + 1;
-        var mpAA = new MPX(positiveTS).get();
-        var paddedClippedMAA = clipMatrixProfileAmplitude(mpAA.profile(), m, pN);
-        var mpAB = new MPX(positiveTS).get(negativeTS);
-        var paddedClippedMAB = clipMatrixProfileAmplitude(mpAB.profile(), m, pN);
-        var contrastProfile = new double[pN];
+        var pN = positiveTS.x().length + 1;
+        var exclusionZoneSize = (int) Math.floor(m * 0.5d + Util.EPS);
+        List<Callable<BaseMatrixProfile>> joins = new ArrayList<>(negativeTS.length + 1);
+        joins.add(() -> MPX.selfJoin(positiveTS, exclusionZoneSize, false, 0.5d));
+        for (var negative : negativeTS) {
+            // only the positive side of AB-join is needed
+            joins.add(() -> MPX.join(positiveTS, negative, false, 0.5d, false, null));
+        }
+        var profiles = Parallel.invokeAll(executor, joins);
+        var mpAA = profiles.get(0);
+        var result = new ContrastProfile[negativeTS.length];
+        for (int k = 0; k < result.length; k++) {
+            var contrastProfile = new double[pN];
+            var maxIdx = contrast(mpAA.profile(), profiles.get(k + 1).profile(), m,
+                contrastProfile);
+            var plato = new double[m];
+            var platoTwin = new double[m];
+            for (int idx = 0, i = maxIdx, n = mpAA.indexes()[maxIdx]; idx < m;
+                i++, n++, idx++) {
+                plato[idx] = positiveTS.x()[i];
+                platoTwin[idx] = positiveTS.x()[n];
+            }
+            result[k] = new ContrastProfile(contrastProfile, plato, platoTwin, m);
+        }
+        return result;
+    }
+
+    /**
+     * @param positiveTS a timeseries containing at least 2 instances of desired behaviour
+     * @param negativeTS timeseries containing zero instances of desired behaviour
+     * @param windowSize window size
+     * @return ContrastProfile for every negative series
+     */
+    public ContrastProfile[] applyAll(double[] positiveTS, double[][] negativeTS,
+        int windowSize) {
+        var negatives = new MPXColumns[negativeTS.length];
+        for (int k = 0; k < negatives.length; k++) {
+            negatives[k] = MPXColumns.of(negativeTS[k], windowSize);
+        }
+        return applyAll(MPXColumns.of(positiveTS, windowSize), negatives);
+    }
+
+    /**
+     * Computes contrast profile of clipped AB-join and self-join profiles in place, without
+     * padded copies of both profiles, and normalizes it.
+     *
+     * @param mpAA            self-join matrix profile of positive series
+     * @param mpAB            AB-join matrix profile of positive series
+     * @param m               window size
+     * @param contrastProfile result, values beyond profile length are NaN
+     * @return index of maximum contrast before normalization
+     */
+    static int contrast(double[] mpAA, double[] mpAB, int m, double[] contrastProfile) {
+        var factor = Math.sqrt(2 * m);
         var maxIdx = 0;
         var maxContrastValue = Double.NEGATIVE_INFINITY;
-        for (var i = 0; i < pN; i++) {
-            contrastProfile[i] = paddedClippedMAB[i] - paddedClippedMAA[i];
+        for (var i = 0; i < contrastProfile.length; i++) {
+            contrastProfile[i] = clip(mpAB, i, factor) - clip(mpAA, i, factor);
             if (contrastProfile[i] > maxContrastValue) {
                 maxContrastValue = contrastProfile[i];
                 maxIdx = i;
             }
         }
         normalizeContrastProfileAmplitude(contrastProfile, m);
-        var plato = new double[m];
-        var platoTwin = new double[m];
-        for (int idx = 0, i = maxIdx, n = mpAA.indexes()[maxIdx]; idx < m; i++, n++, idx++) {
-            plato[idx] = positiveTS.getStatsBuffer().get(i).x();
-            platoTwin[idx] = positiveTS.getStatsBuffer().get(n).x();
-        }
+        return maxIdx;
+    }
 
-        return new ContrastProfile(contrastProfile, plato, platoTwin, positiveTS.windowSize());
+    private static double clip(double[] mp, int i, double factor) {
+        if (i >= mp.length) {
+            return Double.NaN;
+        }
+        var minValue = Math.min(factor, mp[i]);
+        return Math.max(0, Double.isNaN(minValue) ? mp[i] : minValue);
     }
 
     public static double[] clipMatrixProfileAmplitude(double[] mp, double m, int padding) {
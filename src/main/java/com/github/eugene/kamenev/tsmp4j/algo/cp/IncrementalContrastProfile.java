@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.cp;
+
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpxi.MPXI;
+import com.github.eugene.kamenev.tsmp4j.stats.BaseRollingWindowStatistics;
+import com.github.eugene.kamenev.tsmp4j.stats.BaseWindowStatistic;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Contrast profile of positive and negative series which both grow over time. Positive self-join
+ * is maintained by {@link MPXI}, AB-join keeps dot products of the last positive subsequence with
+ * all negative subsequences and of all positive subsequences with the last negative subsequence,
+ * so a point appended to either series updates the join with STOMP recurrence in O(n). Every
+ * series is centred by the mean of its first subsequence, which keeps dot products small for data
+ * with a large offset, and dot products are recomputed every {@link #RESEED} steps. Plato and its
+ * twin are copied only when maximum contrast moves.
+ */
+public class IncrementalContrastProfile implements Supplier<ContrastProfile> {
+
+    /**
+     * Number of recurrence steps after which a row or column of dot products is recomputed from
+     * data, so rounding error does not grow with stream length.
+     */
+    public static final int RESEED = 1024;
+
+    private final int windowSize;
+
+    private final MPXI selfJoin;
+
+    private final Series positive;
+
+    private final Series negative;
+
+    /**
+     * Dot products of the last positive subsequence with negative subsequences.
+     */
+    private double[] row = new double[16];
+
+    /**
+     * Dot products of positive subsequences with the last negative subsequence.
+     */
+    private double[] column = new double[16];
+
+    /**
+     * Maximum correlation of every positive subsequence with negative subsequences.
+     */
+    private double[] correlation = new double[16];
+
+    private int platoIndex = -1;
+
+    private int platoTwinIndex = -1;
+
+    private double[] plato;
+
+    private double[] platoTwin;
+
+    public IncrementalContrastProfile(int windowSize) {
+        this.windowSize = windowSize;
+        this.selfJoin = new MPXI(windowSize, 0);
+        this.positive = new Series(windowSize);
+        this.negative = new Series(windowSize);
+    }
+
+    /**
+     * Appends a point to the series containing instances of desired behaviour.
+     */
+    public void updatePositive(double value) {
+        selfJoin.update(value);
+        if (!positive.append(value)) {
+            return;
+        }
+        int p = positive.count - 1;
+        int q = negative.count;
+        if (correlation.length == p) {
+            correlation = Arrays.copyOf(correlation, p * 2);
+            column = Arrays.copyOf(column, p * 2);
+        }
+        correlation[p] = Double.NEGATIVE_INFINITY;
+        if (q == 0) {
+            return;
+        }
+        var a = positive.x;
+        var b = negative.x;
+        int m = windowSize;
+        if (p % RESEED == 0) {
+            for (int j = 0; j < q; j++) {
+                row[j] = dot(a, p, b, j);
+            }
+        } else {
+            for (int j = q - 1; j > 0; j--) {
+                row[j] = row[j - 1] - a[p - 1] * b[j - 1] + a[p + m - 1] * b[j + m - 1];
+            }
+            row[0] = dot(a, p, b, 0);
+        }
+        var max = Double.NEGATIVE_INFINITY;
+        for (int j = 0; j < q; j++) {
+            var c = correlation(p, j, row[j]);
+            if (c > max) {
+                max = c;
+            }
+        }
+        correlation[p] = max;
+        column[p] = row[q - 1];
+    }
+
+    /**
+     * Appends a point to the series containing zero instances of desired behaviour.
+     */
+    public void updateNegative(double value) {
+        if (!negative.append(value)) {
+            return;
+        }
+        int q = negative.count - 1;
+        int p = positive.count;
+        if (row.length == q) {
+            row = Arrays.copyOf(row, q * 2);
+        }
+        if (p == 0) {
+            return;
+        }
+        var a = positive.x;
+        var b = negative.x;
+        int m = windowSize;
+        if (q % RESEED == 0) {
+            for (int i = 0; i < p; i++) {
+                column[i] = dot(a, i, b, q);
+            }
+        } else {
+            for (int i = p - 1; i > 0; i--) {
+                column[i] = column[i - 1] - a[i - 1] * b[q - 1] + a[i + m - 1] * b[q + m - 1];
+            }
+            column[0] = dot(a, 0, b, q);
+        }
+        for (int i = 0; i < p; i++) {
+            var c = correlation(i, q, column[i]);
+            if (c > correlation[i]) {
+                correlation[i] = c;
+            }
+        }
+        row[q] = column[p - 1];
+    }
+
+    @Override
+    public ContrastProfile get() {
+        if (!selfJoin.isReady() || negative.count == 0) {
+            return null;
+        }
+        int m = windowSize;
+        var mpAA = selfJoin.get();
+        var mpAB = new double[positive.count];
+        for (int i = 0; i < mpAB.length; i++) {
+            if (correlation[i] == Double.NEGATIVE_INFINITY) {
+                mpAB[i] = Double.POSITIVE_INFINITY;
+            } else {
+                var dist = 2.0 * m * (1.0 - correlation[i]);
+                mpAB[i] = dist <= 0 ? 0 : Math.sqrt(dist);
+            }
+        }
+        var contrastProfile = new double[positive.size + 1];
+        var maxIdx = ContrastProfileAlgorithm.contrast(mpAA.profile(), mpAB, m, contrastProfile);
+        var twinIdx = mpAA.indexes()[maxIdx];
+        if (maxIdx != platoIndex || twinIdx != platoTwinIndex) {
+            platoIndex = maxIdx;
+            platoTwinIndex = twinIdx;
+            plato = positive.subsequence(maxIdx);
+            platoTwin = positive.subsequence(twinIdx);
+        }
+        return new ContrastProfile(contrastProfile, plato, platoTwin, m);
+    }
+
+    private double correlation(int i, int j, double product) {
+        if (positive.skip[i] || negative.skip[j]) {
+            return Double.NaN;
+        }
+        int m = windowSize;
+        return (product - m * positive.mean[i] * negative.mean[j])
+            / (m * positive.stdDev[i] * negative.stdDev[j]);
+    }
+
+    private double dot(double[] a, int i, double[] b, int j) {
+        var product = 0.0d;
+        for (int k = 0; k < windowSize; k++) {
+            product += a[i + k] * b[j + k];
+        }
+        return product;
+    }
+
+    /**
+     * Growing series with statistics of its subsequences.
+     */
+    private static final class Series {
+
+        private final BaseRollingWindowStatistics<BaseWindowStatistic> statistics;
+
+        private final int windowSize;
+
+        /**
+         * Mean of the first subsequence, subtracted from data points and means.
+         */
+        private double center = 0.0d;
+
+        private double[] x = new double[16];
+
+        private double[] mean = new double[16];
+
+        private double[] stdDev = new double[16];
+
+        private boolean[] skip = new boolean[16];
+
+        private int size = 0;
+
+        private int count = 0;
+
+        private Series(int windowSize) {
+            this.windowSize = windowSize;
+            this.statistics = new BaseRollingWindowStatistics<>(windowSize, windowSize);
+        }
+
+        /**
+         * @return true if a new subsequence is formed
+         */
+        private boolean append(double value) {
+            var stat = statistics.apply(value);
+            if (size == x.length) {
+                x = Arrays.copyOf(x, size * 2);
+                mean = Arrays.copyOf(mean, size * 2);
+                stdDev = Arrays.copyOf(stdDev, size * 2);
+                skip = Arrays.copyOf(skip, size * 2);
+            }
+            x[size++] = stat.x() - center;
+            if (!statistics.isReady()) {
+                return false;
+            }
+            if (count == 0 && Double.isFinite(stat.mean())) {
+                center = stat.mean();
+                for (int i = 0; i < size; i++) {
+                    x[i] -= center;
+                }
+            }
+            mean[count] = stat.mean() - center;
+            stdDev[count] = stat.stdDev();
+            skip[count] = stat.skip();
+            count++;
+            return true;
+        }
+
+        /**
+         * @return subsequence at the index with the centre added back
+         */
+        private double[] subsequence(int index) {
+            var subsequence = new double[windowSize];
+            for (int k = 0; k < windowSize; k++) {
+                subsequence[k] = x[index + k] + center;
+            }
+            return subsequence;
+        }
+    }
+}
@@ -19,65 +19,169 @@ package com.github.eugene.kamenev.tsmp4j.algo.cp;
 
 import java.util.Arrays;
 
+/**
+ * Selects non-overlapping nearest neighbours from a distance profile in ascending order of
+ * distance, ties are resolved by lower index, NaN distances are skipped and the largest distance
+ * is never selected. Every selected neighbour excludes its neighbourhood from further selection.
+ * <p>
+ * Only the candidates that can be reached are ordered: after s selections at most
+ * s * (2 * exclusion + 1) positions are excluded, so the greedy scan needs at most that many
+ * smallest candidates plus one. They are kept in a bounded max-heap of primitives, instead of
+ * sorting the whole profile. An instance reuses its scratch buffers, it is not thread safe.
+ */
 public class NearestNeighborSelection {
 
+    private double[] heapValues = new double[0];
+
+    private int[] heapIndexes = new int[0];
+
+    private int[] excluded = new int[0];
+
+    private int epoch = 0;
+
     public static NearestNeighbors getNearestNeighbors(double[] distanceProfile, int subLength,
         int K) {
+        return new NearestNeighborSelection().select(distanceProfile, subLength, K,
+            Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param distanceProfile distance profile
+     * @param subLength       subsequence length
+     * @param K               -1 to use half of subsequence length as exclusion
+     * @param limit           maximum number of neighbours, the result is a prefix of the full
+     *                        selection
+     * @return up to 2 * (n / subLength) neighbours, at most limit
+     */
+    public NearestNeighbors select(double[] distanceProfile, int subLength, int K, int limit) {
+        int n = distanceProfile.length;
         int exclusionLength = subLength;
-        int KMax = 2 * (distanceProfile.length / subLength);
         if (K == -1) {
             exclusionLength = (int) Math.ceil(subLength / 2.0);
         }
-        K = KMax;
+        int count = Math.min(limit, 2 * (n / subLength));
 
-        double[][] A = new double[distanceProfile.length][2];
-        for (int i = 0; i < distanceProfile.length; i++) {
-            A[i][0] = i;
-            A[i][1] = -distanceProfile[i];
+        // the largest distance is never selected, ties resolved by higher index
+        int last = -1;
+        int valid = 0;
+        for (int i = 0; i < n; i++) {
+            var d = distanceProfile[i];
+            if (!Double.isNaN(d)) {
+                valid++;
+                if (last < 0 || d >= distanceProfile[last]) {
+                    last = i;
+                }
+            }
+        }
+        long reach = (long) count * (2L * exclusionLength + 1) + 1;
+        int capacity = (int) Math.min(valid, reach);
+        if (count <= 0 || capacity == 0) {
+            return new NearestNeighbors(new int[0], new double[0]);
         }
 
-        Arrays.sort(A, (a, b) -> Double.compare(b[1], a[1]));
+        // bounded max-heap of the smallest candidates
+        ensureCapacity(capacity, n);
+        var values = heapValues;
+        var indexes = heapIndexes;
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            var d = distanceProfile[i];
+            if (Double.isNaN(d)) {
+                continue;
+            }
+            if (size < capacity) {
+                values[size] = d;
+                indexes[size] = i;
+                siftUp(values, indexes, size++);
+            } else if (d < values[0]) {
+                values[0] = d;
+                indexes[0] = i;
+                siftDown(values, indexes, 0, size);
+            }
+        }
+        // heap sort, ascending order
+        for (int end = size - 1; end > 0; end--) {
+            swap(values, indexes, 0, end);
+            siftDown(values, indexes, 0, end);
+        }
 
-        int[] exclusionZone = new int[distanceProfile.length];
-        int[] sortedLowestIndices = new int[K];
-        double[] correspondingDistances = new double[K];
+        if (++epoch == 0) {
+            Arrays.fill(excluded, 0);
+            epoch = 1;
+        }
+        var resultIndexes = new int[count];
+        var resultDistances = new double[count];
+        int selected = 0;
+        for (int k = 0; k < size && selected < count; k++) {
+            int trialIndex = indexes[k];
+            if (trialIndex == last || excluded[trialIndex] == epoch) {
+                continue;
+            }
+            resultIndexes[selected] = trialIndex;
+            resultDistances[selected] = values[k];
+            selected++;
+            for (int j = Math.max(0, trialIndex - exclusionLength);
+                j < Math.min(n, trialIndex + exclusionLength + 1); j++) {
+                excluded[j] = epoch;
+            }
+        }
+        return new NearestNeighbors(Arrays.copyOf(resultIndexes, selected),
+            Arrays.copyOf(resultDistances, selected));
+    }
 
-        Arrays.fill(sortedLowestIndices, -1);
-        Arrays.fill(correspondingDistances, Double.NaN);
+    private void ensureCapacity(int capacity, int n) {
+        if (heapValues.length < capacity) {
+            heapValues = new double[capacity];
+            heapIndexes = new int[capacity];
+        }
+        if (excluded.length < n) {
+            excluded = new int[n];
+            epoch = 0;
+        }
+    }
 
-        int index = 0;
-        int iterKum = 0;
-        while (index < K && iterKum < A.length - 1) {
-            int trialIndex = (int) A[iterKum][0];
-            if (exclusionZone[trialIndex] == 0 && !Double.isNaN(distanceProfile[trialIndex])) {
-                sortedLowestIndices[index] = trialIndex;
-                correspondingDistances[index] = distanceProfile[trialIndex];
-                index++;
+    private static boolean greater(double[] values, int[] indexes, int a, int b) {
+        return values[a] > values[b] || (values[a] == values[b] && indexes[a] > indexes[b]);
+    }
 
-                for (int j = Math.max(0, trialIndex - exclusionLength);
-                    j < Math.min(distanceProfile.length, trialIndex + exclusionLength + 1); j++) {
-                    exclusionZone[j] = 1;
-                }
+    private static void siftUp(double[] values, int[] indexes, int k) {
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (!greater(values, indexes, k, parent)) {
+                break;
             }
-            iterKum++;
+            swap(values, indexes, parent, k);
+            k = parent;
         }
+    }
 
-        int validCount = 0;
-        for (int i = 0; i < K; i++) {
-            if (sortedLowestIndices[i] != -1) {
-                validCount++;
+    private static void siftDown(double[] values, int[] indexes, int k, int size) {
+        while (true) {
+            int child = 2 * k + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && greater(values, indexes, child + 1, child)) {
+                child++;
             }
+            if (!greater(values, indexes, child, k)) {
+                break;
+            }
+            swap(values, indexes, k, child);
+            k = child;
         }
+    }
 
-        int[] finalIndices = new int[validCount];
-        double[] finalDistances = new double[validCount];
-        System.arraycopy(sortedLowestIndices, 0, finalIndices, 0, validCount);
-        System.arraycopy(correspondingDistances, 0, finalDistances, 0, validCount);
-
-        return new NearestNeighbors(finalIndices, finalDistances);
+    private static void swap(double[] values, int[] indexes, int a, int b) {
+        var value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+        var index = indexes[a];
+        indexes[a] = indexes[b];
+        indexes[b] = index;
     }
 
     public record NearestNeighbors(int[] indexes, double[] distances) {
 
     }
-}
\ No newline at end of file
+}
@@ -17,10 +17,16 @@
 
 package com.github.eugene.kamenev.tsmp4j.algo.cp;
 
-import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPXRollingWindowStatistics;
-import java.util.Arrays;
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPXColumns;
+import com.github.eugene.kamenev.tsmp4j.stats.PrefixSumStatistics;
+import com.github.eugene.kamenev.tsmp4j.utils.Parallel;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.function.BiFunction;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.IntStream;
 
 public class PanContrastProfileAlgorithm implements
@@ -28,9 +34,21 @@ public class PanContrastProfileAlgorithm implements
 
     private final int[] subLenSeries;
 
-    public PanContrastProfileAlgorithm(int minLen, int maxLen, int numSteps) {
+    private final ExecutorService executor;
+
+    public PanContrastProfileAlgorithm(int minLen, int maxLen, int numSteps,
+        ExecutorService executor) {
         this.subLenSeries = numSteps > 0 ? getExpDistributedSeries(minLen, maxLen, numSteps)
             : IntStream.rangeClosed(minLen, maxLen).toArray();
+        this.executor = executor;
+    }
+
+    public PanContrastProfileAlgorithm(int minLen, int maxLen, int numSteps) {
+        this(minLen, maxLen, numSteps, null);
+    }
+
+    public int[] windowSizes() {
+        return subLenSeries.clone();
     }
 
     /**
@@ -41,15 +59,35 @@ public class PanContrastProfileAlgorithm implements
     @Override
     public PanContrastProfile apply(double[] positiveTS, double[] negativeTS) {
         var contrastProfile = new ContrastProfile[subLenSeries.length];
+        apply(positiveTS, negativeTS, (cp, i) -> contrastProfile[i] = cp);
+        return new PanContrastProfile(contrastProfile);
+    }
 
+    /**
+     * Computes contrast profiles of all window sizes, concurrently with an executor. Statistics of
+     * every window size are derived from a single prefix sum pass over each series, MPX columns
+     * live only for the time of their window size computation.
+     *
+     * @param positiveTS a timeseries containing at least 2 instances of desired behaviour
+     * @param negativeTS a timeseries containing zero instances of desired behaviour
+     * @param consumer   receives contrast profile and its window size index as soon as it is
+     *                   computed, always in the calling thread
+     */
+    public void apply(double[] positiveTS, double[] negativeTS,
+        ObjIntConsumer<ContrastProfile> consumer) {
+        var positiveStats = new PrefixSumStatistics(positiveTS);
+        var negativeStats = new PrefixSumStatistics(negativeTS);
+        var algorithm = new ContrastProfileAlgorithm();
+
+        List<Callable<IndexedContrastProfile>> tasks = new ArrayList<>(subLenSeries.length);
         for (var i = 0; i < subLenSeries.length; i++) {
+            var index = i;
             var winSize = subLenSeries[i];
-            var positiveStats = MPXRollingWindowStatistics.of(positiveTS, winSize);
-            var negativeStats = MPXRollingWindowStatistics.of(negativeTS, winSize);
-            contrastProfile[i] = new ContrastProfileAlgorithm().apply(positiveStats, negativeStats);
+            tasks.add(() -> new IndexedContrastProfile(index, algorithm.apply(
+                MPXColumns.of(positiveStats, winSize), MPXColumns.of(negativeStats, winSize))));
         }
-
-        return new PanContrastProfile(contrastProfile);
+        Parallel.forEachCompleted(executor, tasks,
+            result -> consumer.accept(result.contrastProfile(), result.index()));
     }
 
     private static int[] getExpDistributedSeries(int startLen, int endLen, int numSteps) {
@@ -66,4 +104,8 @@ public class PanContrastProfileAlgorithm implements
 
         return subLenSet.stream().mapToInt(x -> x).sorted().toArray();
     }
+
+    private record IndexedContrastProfile(int index, ContrastProfile contrastProfile) {
+
+    }
 }
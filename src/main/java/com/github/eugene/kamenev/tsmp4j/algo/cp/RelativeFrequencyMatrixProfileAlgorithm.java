@@ -17,17 +17,31 @@
 
 package com.github.eugene.kamenev.tsmp4j.algo.cp;
 
-import com.github.eugene.kamenev.tsmp4j.algo.mp.DistanceProfileFunction.DistanceProfileQuery;
-import com.github.eugene.kamenev.tsmp4j.algo.mp.mass.MASS2;
-import com.github.eugene.kamenev.tsmp4j.stats.BaseRollingWindowStatistics;
+import com.github.eugene.kamenev.tsmp4j.stats.PrefixSumStatistics;
+import com.github.eugene.kamenev.tsmp4j.utils.Parallel;
 import com.github.eugene.kamenev.tsmp4j.utils.Util;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.function.BiFunction;
 
+/**
+ * Relative frequency matrix profile. Distance profiles of successive positive subsequences are
+ * computed with the STOMP sliding dot product update in O(n) per row, dot products are computed
+ * with FFT every {@link #RESEED} rows and after NaN gaps, so rounding error does not accumulate.
+ * With an executor, blocks of rows are computed concurrently, blocks start at multiples of
+ * {@link #RESEED}, so results do not depend on the number of blocks.
+ */
 public class RelativeFrequencyMatrixProfileAlgorithm implements
     BiFunction<double[], double[], RelativeFrequencyMatrixProfile> {
 
+    /**
+     * Number of rows after which sliding dot products are recomputed with FFT.
+     */
+    public static final int RESEED = 1024;
+
     private final int maxFreq;
 
     private final int windowSize;
@@ -36,12 +50,20 @@ public class RelativeFrequencyMatrixProfileAlgorithm implements
 
     private final boolean hasNan;
 
+    private final ExecutorService executor;
+
     public RelativeFrequencyMatrixProfileAlgorithm(int maxFreq, int windowSize, boolean hasNan,
-        boolean selfFlag) {
+        boolean selfFlag, ExecutorService executor) {
         this.maxFreq = maxFreq;
         this.windowSize = windowSize;
         this.selfFlag = selfFlag ? 1 : 0;
         this.hasNan = hasNan;
+        this.executor = executor;
+    }
+
+    public RelativeFrequencyMatrixProfileAlgorithm(int maxFreq, int windowSize, boolean hasNan,
+        boolean selfFlag) {
+        this(maxFreq, windowSize, hasNan, selfFlag, null);
     }
 
     /**
@@ -53,56 +75,116 @@ public class RelativeFrequencyMatrixProfileAlgorithm implements
     public RelativeFrequencyMatrixProfile apply(double[] positiveTS, double[] negativeTS) {
         var isNanPositive = new boolean[positiveTS.length];
         var isNanNegative = new boolean[negativeTS.length];
+        var nonNanPositiveTS = positiveTS;
         var nonNanNegativeTS = negativeTS;
-        var RFMP = new double[maxFreq][positiveTS.length - windowSize + 1];
-        var RFMPIndexes = new int[maxFreq][positiveTS.length - windowSize + 1];
+        int rows = positiveTS.length - windowSize + 1;
+        var RFMP = new double[maxFreq][rows];
+        var RFMPIndexes = new int[maxFreq][rows];
 
         if (hasNan) {
             var replacedPositive = replaceNanWithMean(positiveTS);
             var replacedNegative = replaceNanWithMean(negativeTS);
             isNanPositive = replacedPositive.isNan();
+            nonNanPositiveTS = replacedPositive.ts();
             nonNanNegativeTS = replacedNegative.ts();
             isNanNegative = replacedNegative.isNan();
         }
-        var statsB = new BaseRollingWindowStatistics<>(windowSize, negativeTS.length);
-        for (var i = 0; i < negativeTS.length; i++) {
-            statsB.apply(nonNanNegativeTS[i]);
-        }
-        var fft = Util.forwardFft(statsB, false, 0, Util.padSize(negativeTS.length));
-
-        for (int i = 0; i < positiveTS.length - windowSize + 1; i++) {
-            var statsA = new BaseRollingWindowStatistics<>(windowSize, windowSize);
-            boolean shouldSkip = false;
-            for (int j = i; j < i + windowSize; j++) {
-                if (isNanPositive[j]) {
-                    shouldSkip = true;
-                    break;
+        var rowSkip = windowsWithNan(isNanPositive, windowSize);
+        // distances next to a NaN of negative series are excluded in every row
+        var excluded = new boolean[negativeTS.length - windowSize + 1];
+        for (int j = 0; j < excluded.length; j++) {
+            if (isNanNegative[j]) {
+                for (int idx = Math.max(0, j - windowSize);
+                    idx < Math.min(excluded.length, j + windowSize); idx++) {
+                    excluded[idx] = true;
                 }
-                statsA.apply(positiveTS[j]);
             }
-            if (shouldSkip) {
+        }
+        var statsA = new PrefixSumStatistics(nonNanPositiveTS);
+        var statsB = new PrefixSumStatistics(nonNanNegativeTS);
+        var rowData = new RowData(nonNanPositiveTS, nonNanNegativeTS,
+            statsA.means(windowSize), statsA.stdDevs(windowSize),
+            statsB.means(windowSize), statsB.stdDevs(windowSize),
+            rowSkip, excluded, RFMP, RFMPIndexes);
+
+        var bounds = Parallel.split((rows + RESEED - 1) / RESEED, Parallel.parallelism(executor));
+        List<Callable<Void>> tasks = new ArrayList<>(bounds.length - 1);
+        for (int k = 0; k < bounds.length - 1; k++) {
+            int from = bounds[k] * RESEED;
+            int to = Math.min(rows, bounds[k + 1] * RESEED);
+            if (from < to) {
+                tasks.add(() -> {
+                    computeRows(rowData, from, to);
+                    return null;
+                });
+            }
+        }
+        Parallel.invokeAll(executor, tasks);
+        return new RelativeFrequencyMatrixProfile(RFMP, RFMPIndexes);
+    }
+
+    /**
+     * Computes rows [from, to), every row writes only its own column of the result.
+     */
+    private void computeRows(RowData data, int from, int to) {
+        var a = data.positive();
+        var b = data.negative();
+        int m = windowSize;
+        var sqN = Math.sqrt(b.length);
+        double[] qt = null;
+        var dp = new double[b.length - m + 1];
+        var selection = new NearestNeighborSelection();
+        for (int i = from; i < to; i++) {
+            if (data.rowSkip()[i]) {
+                qt = null;
                 continue;
             }
-            var dp = new MASS2<>().apply(
-                    new DistanceProfileQuery<>(statsB, statsA, 0, windowSize, fft, true, true))
-                .profile();
-            for (int j = 0; j < negativeTS.length - windowSize + 1; j++) {
-                if (isNanNegative[j]) {
-                    for (int idx = Math.max(0, j - windowSize); idx < j + windowSize; idx++) {
-                        dp[idx] = Double.NaN;
-                    }
+            if (qt == null || i % RESEED == 0) {
+                qt = Util.slidingDotProducts(a, i, m, b);
+            } else {
+                for (int j = qt.length - 1; j > 0; j--) {
+                    qt[j] = qt[j - 1] - a[i - 1] * b[j - 1] + a[i + m - 1] * b[j + m - 1];
+                }
+                var product = 0.0d;
+                for (int k = 0; k < m; k++) {
+                    product += a[i + k] * b[k];
+                }
+                qt[0] = product;
+            }
+            var meanA = data.positiveMeans()[i];
+            var stdDevA = data.positiveStdDevs()[i];
+            for (int j = 0; j < dp.length; j++) {
+                if (data.excluded()[j]) {
+                    dp[j] = Double.NaN;
+                    continue;
                 }
+                var d = 2 * (m - (qt[j] - m * data.negativeMeans()[j] * meanA)
+                    / (data.negativeStdDevs()[j] * stdDevA));
+                dp[j] = d < 0 ? 0.0d : Math.sqrt(d) / sqN;
             }
 
-            var neighbors = NearestNeighborSelection.getNearestNeighbors(dp, windowSize,
-                maxFreq + selfFlag);
+            var neighbors = selection.select(dp, m, maxFreq + selfFlag, maxFreq + selfFlag);
             var kMin = Math.min(maxFreq + selfFlag, neighbors.indexes().length);
             for (int j = 0; j < kMin - selfFlag; j++) {
-                RFMP[j][i] = neighbors.distances()[j + selfFlag];
-                RFMPIndexes[j][i] = neighbors.indexes()[j + selfFlag];
+                data.profile()[j][i] = neighbors.distances()[j + selfFlag];
+                data.indexes()[j][i] = neighbors.indexes()[j + selfFlag];
             }
         }
-        return new RelativeFrequencyMatrixProfile(RFMP, RFMPIndexes);
+    }
+
+    private static boolean[] windowsWithNan(boolean[] isNan, int windowSize) {
+        var result = new boolean[isNan.length - windowSize + 1];
+        int count = 0;
+        for (int i = 0; i < isNan.length; i++) {
+            count += isNan[i] ? 1 : 0;
+            if (i >= windowSize) {
+                count -= isNan[i - windowSize] ? 1 : 0;
+            }
+            if (i >= windowSize - 1) {
+                result[i - windowSize + 1] = count > 0;
+            }
+        }
+        return result;
     }
 
     private static ReplacedNonNan replaceNanWithMean(double[] tsA) {
@@ -130,4 +212,11 @@ public class RelativeFrequencyMatrixProfileAlgorithm implements
     private record ReplacedNonNan(double[] ts, boolean[] isNan) {
 
     }
+
+    private record RowData(double[] positive, double[] negative, double[] positiveMeans,
+                           double[] positiveStdDevs, double[] negativeMeans,
+                           double[] negativeStdDevs, boolean[] rowSkip, boolean[] excluded,
+                           double[][] profile, int[][] indexes) {
+
+    }
 }
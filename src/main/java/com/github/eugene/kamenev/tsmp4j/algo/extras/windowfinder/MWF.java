@@ -17,6 +17,7 @@
 
 package com.github.eugene.kamenev.tsmp4j.algo.extras.windowfinder;
 
+import com.github.eugene.kamenev.tsmp4j.stats.PrefixSumStatistics;
 import java.util.ArrayList;
 
 /**
@@ -50,8 +51,9 @@ public class MWF {
     public static int mwf(double[] ts, int lbound, int ubound) {
         double[][] averages = new double[ubound - lbound][];
         int[] winSizes = new int[ubound - lbound];
+        var stats = new PrefixSumStatistics(ts);
         for (int w = lbound, i = 0; w < ubound; w++, i++) {
-            averages[i] = movmean(ts, w);
+            averages[i] = stats.means(w);
             winSizes[i] = w;
         }
 
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.fluss;
+
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpxi.MPXI;
+import java.util.function.Consumer;
+
+/**
+ * Online semantic segmentation (FLOSS), streaming counterpart of {@link FLUSS}. Only arcs from a
+ * subsequence to its left nearest neighbour are used, they are final as soon as the subsequence
+ * arrives, and are maintained by {@link MPXI} over a sliding horizon. Arc counts are kept as
+ * per-index start and end counters, so the corrected arc curve at a fixed lag behind the newest
+ * subsequence moves in O(1) per point, arcs of evicted subsequences are removed once, O(1)
+ * amortized. Idealized arc curve of one-directional arcs over a full horizon is computed once.
+ * When corrected arc curve at the lag drops below the threshold, a regime change is reported,
+ * next one is reported only after the curve rises above the threshold again.
+ */
+public class FLOSS {
+
+    private final int windowSize;
+
+    private final int lag;
+
+    private final double threshold;
+
+    private final Consumer<RegimeChange> listener;
+
+    private final MPXI mpxi;
+
+    /**
+     * Number of subsequences in a full horizon.
+     */
+    private final int capacity;
+
+    /**
+     * Idealized arc curve of a full horizon.
+     */
+    private final double[] iac;
+
+    /*
+     * Circular arrays indexed by absolute subsequence index modulo capacity.
+     */
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] sources;
+    private final int[] head;
+    private final int[] next;
+
+    /**
+     * Absolute index of the newest subsequence.
+     */
+    private int newest = -1;
+
+    /**
+     * Absolute index of the oldest live subsequence.
+     */
+    private int first = 0;
+
+    /**
+     * Absolute index of the subsequence at the lag, -1 until horizon is full.
+     */
+    private int probe = -1;
+
+    /**
+     * Number of live arcs passing over the probe.
+     */
+    private int count = 0;
+
+    private boolean armed = true;
+
+    /**
+     * @param windowSize  window size
+     * @param historySize number of data points in the sliding horizon
+     * @param lag         distance of evaluated position from the newest subsequence
+     * @param threshold   corrected arc curve value below which a regime change is reported
+     * @param listener    receives regime changes, may be null
+     */
+    public FLOSS(int windowSize, int historySize, int lag, double threshold,
+        Consumer<RegimeChange> listener) {
+        this.capacity = historySize - windowSize + 1;
+        if (lag <= 0 || lag >= capacity) {
+            throw new IllegalArgumentException("Lag must be within the horizon");
+        }
+        this.windowSize = windowSize;
+        this.lag = lag;
+        this.threshold = threshold;
+        this.listener = listener;
+        this.mpxi = new MPXI(windowSize, historySize);
+        this.iac = idealArcCurve(capacity);
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.sources = new int[capacity];
+        this.head = new int[capacity];
+        this.next = new int[capacity];
+    }
+
+    /**
+     * Evaluates position 5 window sizes behind the newest subsequence, same as exclusion zone of
+     * FLUSS with default exclusion.
+     */
+    public FLOSS(int windowSize, int historySize, double threshold,
+        Consumer<RegimeChange> listener) {
+        this(windowSize, historySize, 5 * windowSize, threshold, listener);
+    }
+
+    public void update(double value) {
+        mpxi.update(value);
+        int length = mpxi.profileLength();
+        if (length == 0) {
+            return;
+        }
+        int offset = mpxi.offset();
+        while (first < offset) {
+            evict(first++);
+        }
+        int j = ++newest;
+        int slot = j % capacity;
+        starts[slot] = 0;
+        ends[slot] = 0;
+        head[slot] = -1;
+        next[slot] = -1;
+        sources[slot] = -1;
+
+        if (probe >= 0) {
+            probe++;
+            int p = probe % capacity;
+            count += starts[p] - ends[p];
+        }
+
+        int left = mpxi.leftIndex(length - 1);
+        if (left >= 0) {
+            int i = offset + left;
+            starts[i % capacity]++;
+            ends[slot]++;
+            sources[slot] = i;
+            next[slot] = head[i % capacity];
+            head[i % capacity] = j;
+            if (probe >= 0 && i <= probe) {
+                count++;
+            }
+        }
+
+        if (probe < 0 && length == capacity) {
+            probe = j - lag;
+            count = 0;
+            for (int k = probe + 1; k <= j; k++) {
+                var source = sources[k % capacity];
+                if (source >= first && source <= probe) {
+                    count++;
+                }
+            }
+        }
+        if (probe >= 0) {
+            var cac = cac();
+            if (cac < threshold) {
+                if (armed && listener != null) {
+                    listener.accept(new RegimeChange(probe, cac));
+                }
+                armed = false;
+            } else {
+                armed = true;
+            }
+        }
+    }
+
+    /**
+     * @return corrected arc curve value at the lag, NaN until horizon is full
+     */
+    public double cac() {
+        if (probe < 0) {
+            return Double.NaN;
+        }
+        return Math.min(count / iac[probe - first], 1.0d);
+    }
+
+    /**
+     * @return absolute index of the subsequence at the lag, -1 until horizon is full
+     */
+    public int position() {
+        return probe;
+    }
+
+    /**
+     * @return absolute index of the oldest subsequence in the horizon
+     */
+    public int offset() {
+        return first;
+    }
+
+    /**
+     * Corrected arc curve of the whole horizon, computed in O(n). Values within 5 window sizes of
+     * the oldest subsequence are 1, same as in {@link FLUSS}.
+     *
+     * @return corrected arc curve, null until horizon is full
+     */
+    public double[] correctedArcCurve() {
+        if (probe < 0) {
+            return null;
+        }
+        var result = new double[capacity];
+        int ez = Math.min(5 * windowSize, capacity);
+        int arcs = 0;
+        for (int k = 0; k < capacity; k++) {
+            int slot = (first + k) % capacity;
+            arcs += starts[slot] - ends[slot];
+            result[k] = k < ez || iac[k] == 0 ? 1.0d : Math.min(arcs / iac[k], 1.0d);
+        }
+        return result;
+    }
+
+    private void evict(int s) {
+        int slot = s % capacity;
+        for (int j = head[slot]; j >= 0; j = next[j % capacity]) {
+            ends[j % capacity]--;
+            if (probe >= 0 && s <= probe && probe < j) {
+                count--;
+            }
+        }
+        starts[slot] = 0;
+        head[slot] = -1;
+    }
+
+    /**
+     * Expected arc counts when left nearest neighbour of every subsequence is uniformly
+     * distributed over the preceding subsequences: sum of (k + 1) / j over j > k.
+     */
+    static double[] idealArcCurve(int length) {
+        var iac = new double[length];
+        var harmonic = 0.0d;
+        for (int k = length - 2; k >= 0; k--) {
+            harmonic += 1.0d / (k + 1);
+            iac[k] = (k + 1) * harmonic;
+        }
+        return iac;
+    }
+
+    /**
+     * @param index absolute index of subsequence where regime changes
+     * @param cac   corrected arc curve value at the index
+     */
+    public record RegimeChange(int index, double cac) {
+
+    }
+}
@@ -18,10 +18,7 @@
 package com.github.eugene.kamenev.tsmp4j.algo.fluss;
 
 import com.github.eugene.kamenev.tsmp4j.algo.mp.MatrixProfile;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
 import java.util.function.Function;
 import org.apache.commons.math3.distribution.BetaDistribution;
 
@@ -53,42 +50,62 @@ public class FLUSS implements Function<MatrixProfile, FLUSSCP> {
     }
 
 
+    /**
+     * Selects up to numSegments positions of lowest corrected arc curve below 1, every selected
+     * position excludes its neighbourhood of windowSize * exclusionZone. Ties are resolved by lower
+     * position, NaN and +Infinity values are never selected. Minimum over non-excluded positions is
+     * kept in a segment tree, so extraction costs O(n + k * (ez + log n)).
+     */
     public static int[] flussExtract(int exclusionZone, int windowSize, int numSegments,
         double[] cac) {
-        List<Integer> segmentsPositions = new ArrayList<>();
-        int arcCountsSize = cac.length;
+        int n = cac.length;
         int ez = windowSize * exclusionZone;
-
-        Set<Integer> selectedIndices = new HashSet<>();
-
-        for (int i = 0; i < numSegments; i++) {
-            int idx = minIndexExcluding(cac, selectedIndices);
-            if (cac[idx] >= 1) {
+        var segments = new int[Math.max(0, Math.min(numSegments, n))];
+        if (segments.length == 0) {
+            return segments;
+        }
+        var tree = new MinIndexTree(cac);
+        int count = 0;
+        while (count < segments.length) {
+            int idx = tree.min();
+            if (idx < 0 || cac[idx] >= 1) {
                 break;
             }
-            segmentsPositions.add(idx);
-            selectedIndices.add(idx);
-            for (int j = Math.max(0, idx - ez); j < Math.min(arcCountsSize, idx + ez); j++) {
-                selectedIndices.add(j);
-            }
+            segments[count++] = idx;
+            tree.exclude(Math.max(0, idx - ez), Math.max(idx + 1, Math.min(n, idx + ez)));
         }
-
-        return segmentsPositions.stream().mapToInt(i -> i).toArray();
+        return Arrays.copyOf(segments, count);
     }
 
     public static double[] flussCAC(int exclusionZone, int windowSize, MatrixProfile profile) {
-        int profileIndexSize = profile.indexes().length;
-        int[] nnmark = new int[profileIndexSize];
-        double[] arcCounts = new double[profileIndexSize];
+        int[] nnmark = new int[profile.indexes().length];
+        markArcs(profile.indexes(), nnmark);
+        return correctedArcCurve(exclusionZone, windowSize, nnmark, 1);
+    }
 
+    /**
+     * Adds arcs between every subsequence and its nearest neighbour to the marks, arc counts are
+     * their prefix sums. Marks of several profiles of equal length can be accumulated.
+     */
+    static void markArcs(int[] indexes, int[] nnmark) {
+        int profileIndexSize = indexes.length;
         for (int i = 0; i < profileIndexSize; i++) {
-            int j = profile.indexes()[i];
+            int j = indexes[i];
             if (j >= 0 && j < profileIndexSize) {
                 nnmark[Math.min(i, j)] += 1;
                 nnmark[Math.max(i, j)] -= 1;
             }
         }
+    }
 
+    /**
+     * @param nnmark   arc marks accumulated over all channels
+     * @param channels number of channels, idealized arc curve is scaled by it
+     */
+    static double[] correctedArcCurve(int exclusionZone, int windowSize, int[] nnmark,
+        int channels) {
+        int profileIndexSize = nnmark.length;
+        double[] arcCounts = new double[profileIndexSize];
         int sum = 0;
         for (int i = 0; i < profileIndexSize; i++) {
             sum += nnmark[i];
@@ -104,7 +121,7 @@ public class FLUSS implements Function<MatrixProfile, FLUSSCP> {
             } else {
                 var x = (double) i / (profileIndexSize - 1);
                 var idealArcCounts = betaDistribution.density(x) * profileIndexSize / 3;
-                correctedArcCounts[i] = Math.min(arcCounts[i] / idealArcCounts, 1);
+                correctedArcCounts[i] = Math.min(arcCounts[i] / (idealArcCounts * channels), 1);
             }
         }
         return correctedArcCounts;
@@ -140,15 +157,73 @@ public class FLUSS implements Function<MatrixProfile, FLUSSCP> {
         return score;
     }
 
-    private static int minIndexExcluding(double[] array, Set<Integer> excludedIndices) {
-        int minIndex = -1;
-        double minValue = Double.POSITIVE_INFINITY;
-        for (int i = 0; i < array.length; i++) {
-            if (!excludedIndices.contains(i) && array[i] < minValue) {
-                minValue = array[i];
-                minIndex = i;
+    /**
+     * Segment tree over positions holding the position of minimum value in every node, -1 when the
+     * node has no selectable position.
+     */
+    private static final class MinIndexTree {
+
+        private final double[] values;
+
+        private final int size;
+
+        private final int[] tree;
+
+        private MinIndexTree(double[] values) {
+            this.values = values;
+            int size = 1;
+            while (size < values.length) {
+                size <<= 1;
+            }
+            this.size = size;
+            this.tree = new int[2 * size];
+            Arrays.fill(tree, -1);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] < Double.POSITIVE_INFINITY) {
+                    tree[size + i] = i;
+                }
+            }
+            for (int p = size - 1; p > 0; p--) {
+                tree[p] = smaller(tree[2 * p], tree[2 * p + 1]);
+            }
+        }
+
+        private int min() {
+            return tree[1];
+        }
+
+        /**
+         * Excludes positions [from, to) from selection.
+         */
+        private void exclude(int from, int to) {
+            if (from >= to) {
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                tree[size + i] = -1;
+            }
+            int lo = (size + from) >>> 1;
+            int hi = (size + to - 1) >>> 1;
+            while (lo > 0) {
+                for (int p = lo; p <= hi; p++) {
+                    tree[p] = smaller(tree[2 * p], tree[2 * p + 1]);
+                }
+                lo >>>= 1;
+                hi >>>= 1;
+            }
+        }
+
+        /**
+         * Left operand covers lower positions, it wins ties.
+         */
+        private int smaller(int left, int right) {
+            if (left < 0) {
+                return right;
+            }
+            if (right < 0) {
+                return left;
             }
+            return values[right] < values[left] ? right : left;
         }
-        return minIndex;
     }
 }
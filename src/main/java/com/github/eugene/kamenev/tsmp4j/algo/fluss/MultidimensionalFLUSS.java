@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.fluss;
+
+import com.github.eugene.kamenev.tsmp4j.algo.mp.MatrixProfile;
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPX;
+import com.github.eugene.kamenev.tsmp4j.utils.Parallel;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Semantic segmentation of a multidimensional series. Matrix profile of every channel is computed
+ * independently, only its arc marks are kept and accumulated as soon as the channel completes, so
+ * at most the profiles in flight are held in memory. Joint corrected arc curve compares summed arc
+ * counts with the idealized arc curve scaled by number of channels, change points are extracted
+ * the same way as in {@link FLUSS}.
+ */
+public class MultidimensionalFLUSS implements Function<double[][], FLUSSCP> {
+
+    private final int windowSize;
+
+    private final int numSegments;
+
+    private final Function<double[], ? extends MatrixProfile> profile;
+
+    private final ExecutorService executor;
+
+    /**
+     * @param windowSize  window size
+     * @param numSegments maximum number of change points
+     * @param profile     computes self-join matrix profile of a channel
+     * @param executor    computes channels in parallel, may be null
+     */
+    public MultidimensionalFLUSS(int windowSize, int numSegments,
+        Function<double[], ? extends MatrixProfile> profile, ExecutorService executor) {
+        this.windowSize = windowSize;
+        this.numSegments = numSegments;
+        this.profile = profile;
+        this.executor = executor;
+    }
+
+    public MultidimensionalFLUSS(int windowSize, int numSegments, ExecutorService executor) {
+        this(windowSize, numSegments, ts -> MPX.of(ts, windowSize), executor);
+    }
+
+    public MultidimensionalFLUSS(int windowSize, int numSegments) {
+        this(windowSize, numSegments, null);
+    }
+
+    /**
+     * @param channels channels of equal length
+     */
+    @Override
+    public FLUSSCP apply(double[][] channels) {
+        if (channels.length == 0) {
+            throw new IllegalArgumentException("At least one channel is required");
+        }
+        var tasks = new ArrayList<Callable<ChannelArcs>>(channels.length);
+        for (var channel : channels) {
+            tasks.add(() -> {
+                var mp = profile.apply(channel);
+                var nnmark = new int[mp.indexes().length];
+                FLUSS.markArcs(mp.indexes(), nnmark);
+                return new ChannelArcs(nnmark, mp.exclusionZone());
+            });
+        }
+        var joint = new ChannelArcs[1];
+        Parallel.forEachCompleted(executor, tasks, arcs -> {
+            if (joint[0] == null) {
+                joint[0] = arcs;
+                return;
+            }
+            var nnmark = joint[0].nnmark();
+            if (nnmark.length != arcs.nnmark().length) {
+                throw new IllegalArgumentException("Channels must be of equal length");
+            }
+            for (int i = 0; i < nnmark.length; i++) {
+                nnmark[i] += arcs.nnmark()[i];
+            }
+        });
+        int exclusionZone = (int) Math.ceil(joint[0].exclusionZone() * 10);
+        var cac = FLUSS.correctedArcCurve(exclusionZone, windowSize, joint[0].nnmark(),
+            channels.length);
+        var changePoints = FLUSS.flussExtract(exclusionZone, windowSize, numSegments, cac);
+        return new FLUSSCP(cac, changePoints);
+    }
+
+    private record ChannelArcs(int[] nnmark, double exclusionZone) {
+
+    }
+}
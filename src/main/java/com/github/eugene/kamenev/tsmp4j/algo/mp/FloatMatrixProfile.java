@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.mp;
+
+/**
+ * Single precision matrix profile, uses half of the memory of {@link BaseMatrixProfile} for
+ * distances. Suitable for visualization and anomaly scoring, where float precision is enough.
+ */
+public record FloatMatrixProfile(
+    int windowSize,
+    double exclusionZone,
+    float[] profile,
+    int[] indexes,
+    float[] rightProfile,
+    float[] leftProfile,
+    int[] rightIndexes,
+    int[] leftIndexes
+) {
+
+    public FloatMatrixProfile(int windowSize, double exclusionZone,
+        float[] profile, int[] indexes) {
+        this(windowSize, exclusionZone, profile, indexes, null, null, null, null);
+    }
+
+    public MatrixProfile toMatrixProfile() {
+        return new BaseMatrixProfile(windowSize, exclusionZone, widen(profile), indexes,
+            widen(rightProfile), widen(leftProfile), rightIndexes, leftIndexes);
+    }
+
+    public static float[] narrow(double[] values) {
+        if (values == null) {
+            return null;
+        }
+        var result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+
+    public static double[] widen(float[] values) {
+        if (values == null) {
+            return null;
+        }
+        var result = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i];
+        }
+        return result;
+    }
+}
@@ -22,7 +22,11 @@ import com.github.eugene.kamenev.tsmp4j.algo.mp.BaseMatrixProfileAlgorithm;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.MatrixProfile;
 import com.github.eugene.kamenev.tsmp4j.stats.NoStatistic;
 import com.github.eugene.kamenev.tsmp4j.stats.RollingWindowStatistics;
+import com.github.eugene.kamenev.tsmp4j.utils.Parallel;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Efficient Algorithms for Knowledge Discovery from Time Series
@@ -36,74 +40,379 @@ public class AAMP extends BaseMatrixProfileAlgorithm<NoStatistic, MatrixProfile>
 
     private final double p;
 
+    private final ExecutorService executor;
+
     public AAMP(RollingWindowStatistics<NoStatistic> rollingWindowStatistics,
-        double exclusionZone, double p) {
+        double exclusionZone, double p, ExecutorService executor) {
         super(rollingWindowStatistics, exclusionZone);
         this.p = p;
+        this.executor = executor;
+    }
+
+    public AAMP(RollingWindowStatistics<NoStatistic> rollingWindowStatistics,
+        double exclusionZone, double p) {
+        this(rollingWindowStatistics, exclusionZone, p, null);
     }
 
     public AAMP(RollingWindowStatistics<NoStatistic> rollingWindowStatistics, double p) {
         this(rollingWindowStatistics, 0.5d, p);
     }
 
+    /**
+     * AB-join, {@code profile} holds nearest query subsequences for every reference subsequence,
+     * {@code leftProfile} holds nearest reference subsequences for every query subsequence.
+     */
     @Override
     public MatrixProfile get(RollingWindowStatistics<NoStatistic> query) {
-        throw new UnsupportedOperationException();
+        return join(data(this.rollingStatistics()), data(query), this.rollingStatistics().windowSize(),
+            p, exclusionZone, true, executor);
     }
 
     @Override
     public MatrixProfile get() {
         var X = this.rollingStatistics();
         int m = X.windowSize();
-        int Nb = this.rollingStatistics().dataSize();
-        int s = Nb - m;
-        int excZone = this.exclusionZoneSize;
-        double[] Dmin = new double[s + 1];
-        int[] minind = new int[s + 1];
+        double[] x = data(X);
+        int len = x.length - m + 1;
+        double[] Dmin = new double[len];
+        int[] minind = new int[len];
         Arrays.fill(Dmin, Double.POSITIVE_INFINITY);
-        boolean matchFlag = false;
-        for (int k = 0; k < s; k++) {
+        selfJoin(x, m, this.exclusionZoneSize, p, Dmin, minind, executor);
+        return new BaseMatrixProfile(m, exclusionZone, Dmin, minind);
+    }
+
+    public static void selfJoin(double[] x, int m, int excZone, double p, double[] Dmin,
+        int[] minind) {
+        selfJoin(x, m, excZone, p, Dmin, minind, null);
+    }
+
+    /**
+     * Computes non-normalized self-join matrix profile of primitive data, p = 2 and p = 1 use
+     * dedicated kernels without {@link Math#pow(double, double)} calls in the inner loop. With an
+     * executor, diagonals are split into chunks of equal work, every chunk updates its own minimum
+     * arrays, which are merged in diagonal order, so the result is equal to the serial one.
+     *
+     * @param x        data points
+     * @param m        window size
+     * @param excZone  exclusion zone size
+     * @param p        norm order
+     * @param Dmin     profile to fill, must be initialized with positive infinity
+     * @param minind   profile indexes to fill
+     * @param executor executor to run chunks on, null for serial execution
+     */
+    public static void selfJoin(double[] x, int m, int excZone, double p, double[] Dmin,
+        int[] minind, ExecutorService executor) {
+        int s = x.length - m;
+        int parts = Parallel.parallelism(executor);
+        if (parts < 2 || s - excZone < 2) {
+            selfJoin(x, m, excZone, s, p, Dmin, minind);
+        } else {
+            int[] bounds = Parallel.split(s - excZone, parts, k -> s - excZone - k + m);
+            var tasks = new ArrayList<Callable<MinProfile>>();
+            for (int c = 0; c < bounds.length - 1; c++) {
+                int from = excZone + bounds[c];
+                int to = excZone + bounds[c + 1];
+                if (from == to) {
+                    continue;
+                }
+                tasks.add(() -> {
+                    var partial = new MinProfile(Dmin.length, -1);
+                    selfJoin(x, m, from, to, p, partial.D, partial.idx);
+                    return partial;
+                });
+            }
+            for (var partial : Parallel.invokeAll(executor, tasks)) {
+                MinProfile.merge(Dmin, minind, partial.D, partial.idx);
+            }
+        }
+        root(Dmin, p);
+    }
+
+    /**
+     * Computes non-normalized AB-join matrix profile of primitive data, norm order is dispatched
+     * once to the same kind of kernels as the self-join. Diagonals are split into chunks of equal
+     * work when executor is given, partial profiles are merged in diagonal order.
+     *
+     * @param a                   reference data
+     * @param b                   query data
+     * @param m                   window size
+     * @param p                   norm order
+     * @param exclusionZone       exclusion zone recorded in result
+     * @param computeQueryProfile if false, {@code leftProfile}/{@code leftIndexes} of result are
+     *                            null
+     * @param executor            executor to run chunks on, null for serial execution
+     * @return join matrix profile
+     */
+    public static BaseMatrixProfile join(double[] a, double[] b, int m, double p,
+        double exclusionZone, boolean computeQueryProfile, ExecutorService executor) {
+        int na = a.length - m + 1;
+        int nb = b.length - m + 1;
+        int bLen = computeQueryProfile ? nb : -1;
+        // diagonals starting at (i, 0) go first, then diagonals starting at (0, j), j > 0
+        int diagonals = na + nb - 1;
+        MinProfile result;
+        int parts = Parallel.parallelism(executor);
+        if (parts < 2) {
+            result = new MinProfile(na, bLen);
+            join(a, b, m, p, 0, diagonals, result);
+        } else {
+            int[] bounds = Parallel.split(diagonals, parts,
+                t -> (t < na ? Math.min(na - t, nb) : Math.min(nb - (t - na + 1), na)) + m);
+            var tasks = new ArrayList<Callable<MinProfile>>();
+            for (int c = 0; c < bounds.length - 1; c++) {
+                int from = bounds[c];
+                int to = bounds[c + 1];
+                if (from == to) {
+                    continue;
+                }
+                tasks.add(() -> {
+                    var partial = new MinProfile(na, bLen);
+                    join(a, b, m, p, from, to, partial);
+                    return partial;
+                });
+            }
+            var partials = Parallel.invokeAll(executor, tasks);
+            result = partials.get(0);
+            for (int c = 1; c < partials.size(); c++) {
+                result.merge(partials.get(c));
+            }
+        }
+        root(result.D, p);
+        if (result.Db != null) {
+            root(result.Db, p);
+        }
+        return new BaseMatrixProfile(m, exclusionZone, result.D, result.idx, null, result.Db,
+            null, result.idxb);
+    }
+
+    private static void join(double[] a, double[] b, int m, double p, int from, int to,
+        MinProfile result) {
+        if (p == 2.0d) {
+            joinP2(a, b, m, from, to, result);
+        } else if (p == 1.0d) {
+            joinP1(a, b, m, from, to, result);
+        } else {
+            joinPow(a, b, m, p, from, to, result);
+        }
+    }
+
+    private static void joinP2(double[] a, double[] b, int m, int from, int to,
+        MinProfile result) {
+        int na = a.length - m + 1;
+        int nb = b.length - m + 1;
+        for (int t = from; t < to; t++) {
+            int i0 = t < na ? t : 0;
+            int j0 = t < na ? 0 : t - na + 1;
+            int len = Math.min(na - i0, nb - j0);
             double D = 0;
             for (int j = 0; j < m; j++) {
-                D += Math.pow(Math.abs(X.x(j) - X.x(k + j + 1)), p);
+                double d = a[i0 + j] - b[j0 + j];
+                D += d * d;
             }
-
-            if (k >= excZone) {
-                matchFlag = true;
+            result.update(i0, j0, D);
+            for (int k = 1; k < len; k++) {
+                int i = i0 + k;
+                int j = j0 + k;
+                double out = a[i - 1] - b[j - 1];
+                double in = a[i + m - 1] - b[j + m - 1];
+                D = D - out * out + in * in;
+                result.update(i, j, D);
             }
+        }
+    }
 
-            if (D < Dmin[0] && matchFlag) {
-                Dmin[0] = D;
-                minind[0] = k + 1;
+    private static void joinP1(double[] a, double[] b, int m, int from, int to,
+        MinProfile result) {
+        int na = a.length - m + 1;
+        int nb = b.length - m + 1;
+        for (int t = from; t < to; t++) {
+            int i0 = t < na ? t : 0;
+            int j0 = t < na ? 0 : t - na + 1;
+            int len = Math.min(na - i0, nb - j0);
+            double D = 0;
+            for (int j = 0; j < m; j++) {
+                D += Math.abs(a[i0 + j] - b[j0 + j]);
+            }
+            result.update(i0, j0, D);
+            for (int k = 1; k < len; k++) {
+                int i = i0 + k;
+                int j = j0 + k;
+                D = D - Math.abs(a[i - 1] - b[j - 1]) + Math.abs(a[i + m - 1] - b[j + m - 1]);
+                result.update(i, j, D);
             }
+        }
+    }
 
-            if (D < Dmin[k + 1] && matchFlag) {
-                Dmin[k + 1] = D;
-                minind[k + 1] = 0;
+    private static void joinPow(double[] a, double[] b, int m, double p, int from, int to,
+        MinProfile result) {
+        int na = a.length - m + 1;
+        int nb = b.length - m + 1;
+        for (int t = from; t < to; t++) {
+            int i0 = t < na ? t : 0;
+            int j0 = t < na ? 0 : t - na + 1;
+            int len = Math.min(na - i0, nb - j0);
+            double D = 0;
+            for (int j = 0; j < m; j++) {
+                D += Math.pow(Math.abs(a[i0 + j] - b[j0 + j]), p);
+            }
+            result.update(i0, j0, D);
+            for (int k = 1; k < len; k++) {
+                int i = i0 + k;
+                int j = j0 + k;
+                D = D - Math.pow(Math.abs(a[i - 1] - b[j - 1]), p)
+                    + Math.pow(Math.abs(a[i + m - 1] - b[j + m - 1]), p);
+                result.update(i, j, D);
             }
+        }
+    }
 
+    private static void selfJoin(double[] x, int m, int kFrom, int kTo, double p, double[] Dmin,
+        int[] minind) {
+        if (p == 2.0d) {
+            selfJoinP2(x, m, kFrom, kTo, Dmin, minind);
+        } else if (p == 1.0d) {
+            selfJoinP1(x, m, kFrom, kTo, Dmin, minind);
+        } else {
+            selfJoinPow(x, m, kFrom, kTo, p, Dmin, minind);
+        }
+    }
+
+    static void selfJoinP2(double[] x, int m, int kFrom, int kTo, double[] Dmin, int[] minind) {
+        int s = x.length - m;
+        for (int k = kFrom; k < kTo; k++) {
+            int kp = k + 1;
+            double D = 0;
+            for (int j = 0; j < m; j++) {
+                double d = x[j] - x[kp + j];
+                D += d * d;
+            }
+            update(Dmin, minind, 0, kp, D);
             for (int i = 1; i < s - k; i++) {
-                int kplusi = k + i + 1;
-                D = D - Math.pow(Math.abs(X.x(i - 1) - X.x(kplusi - 1)), p) +
-                    Math.pow(Math.abs(X.x(m + i - 1) - X.x(m + kplusi - 1)), p);
+                int kplusi = kp + i;
+                double a = x[i - 1] - x[kplusi - 1];
+                double b = x[m + i - 1] - x[m + kplusi - 1];
+                D = D - a * a + b * b;
+                update(Dmin, minind, i, kplusi, D);
+            }
+        }
+    }
 
-                if (Dmin[i] > D && matchFlag) {
-                    minind[i] = kplusi;
-                    Dmin[i] = D;
-                }
+    static void selfJoinP1(double[] x, int m, int kFrom, int kTo, double[] Dmin, int[] minind) {
+        int s = x.length - m;
+        for (int k = kFrom; k < kTo; k++) {
+            int kp = k + 1;
+            double D = 0;
+            for (int j = 0; j < m; j++) {
+                D += Math.abs(x[j] - x[kp + j]);
+            }
+            update(Dmin, minind, 0, kp, D);
+            for (int i = 1; i < s - k; i++) {
+                int kplusi = kp + i;
+                D = D - Math.abs(x[i - 1] - x[kplusi - 1])
+                    + Math.abs(x[m + i - 1] - x[m + kplusi - 1]);
+                update(Dmin, minind, i, kplusi, D);
+            }
+        }
+    }
 
-                if (Dmin[kplusi] > D && matchFlag) {
-                    minind[kplusi] = i;
-                    Dmin[kplusi] = D;
-                }
+    static void selfJoinPow(double[] x, int m, int kFrom, int kTo, double p, double[] Dmin,
+        int[] minind) {
+        int s = x.length - m;
+        for (int k = kFrom; k < kTo; k++) {
+            int kp = k + 1;
+            double D = 0;
+            for (int j = 0; j < m; j++) {
+                D += Math.pow(Math.abs(x[j] - x[kp + j]), p);
+            }
+            update(Dmin, minind, 0, kp, D);
+            for (int i = 1; i < s - k; i++) {
+                int kplusi = kp + i;
+                D = D - Math.pow(Math.abs(x[i - 1] - x[kplusi - 1]), p) +
+                    Math.pow(Math.abs(x[m + i - 1] - x[m + kplusi - 1]), p);
+                update(Dmin, minind, i, kplusi, D);
             }
         }
+    }
 
+    static void root(double[] Dmin, double p) {
         for (int i = 0; i < Dmin.length; i++) {
             Dmin[i] = Math.max(Dmin[i], 0);
-            Dmin[i] = Math.pow(Dmin[i], 1.0 / p);
+            if (p == 2.0d) {
+                Dmin[i] = Math.sqrt(Dmin[i]);
+            } else if (p != 1.0d) {
+                Dmin[i] = Math.pow(Dmin[i], 1.0 / p);
+            }
         }
+    }
 
-        return new BaseMatrixProfile(m, exclusionZone, Dmin, minind);
+    private static void update(double[] Dmin, int[] minind, int i, int j, double D) {
+        if (Dmin[i] > D) {
+            minind[i] = j;
+            Dmin[i] = D;
+        }
+        if (Dmin[j] > D) {
+            minind[j] = i;
+            Dmin[j] = D;
+        }
+    }
+
+    private static double[] data(RollingWindowStatistics<NoStatistic> X) {
+        double[] x = new double[X.dataSize()];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = X.x(i);
+        }
+        return x;
+    }
+
+    /**
+     * Squared (p-th power) distance profile of a join, or of its part.
+     */
+    private static final class MinProfile {
+
+        private final double[] D;
+        private final int[] idx;
+        private final double[] Db;
+        private final int[] idxb;
+
+        private MinProfile(int aLength, int bLength) {
+            this.D = new double[aLength];
+            this.idx = new int[aLength];
+            Arrays.fill(this.D, Double.POSITIVE_INFINITY);
+            if (bLength >= 0) {
+                this.Db = new double[bLength];
+                this.idxb = new int[bLength];
+                Arrays.fill(this.Db, Double.POSITIVE_INFINITY);
+            } else {
+                this.Db = null;
+                this.idxb = null;
+            }
+        }
+
+        private void update(int i, int j, double value) {
+            if (D[i] > value) {
+                D[i] = value;
+                idx[i] = j;
+            }
+            if (Db != null && Db[j] > value) {
+                Db[j] = value;
+                idxb[j] = i;
+            }
+        }
+
+        private void merge(MinProfile other) {
+            merge(D, idx, other.D, other.idx);
+            if (Db != null) {
+                merge(Db, idxb, other.Db, other.idxb);
+            }
+        }
+
+        private static void merge(double[] D, int[] idx, double[] otherD, int[] otherIdx) {
+            for (int i = 0; i < D.length; i++) {
+                if (otherD[i] < D[i]) {
+                    D[i] = otherD[i];
+                    idx[i] = otherIdx[i];
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.mp.aampi;
+
+import com.github.eugene.kamenev.tsmp4j.algo.mp.BaseOnlineMatrixProfile;
+import com.github.eugene.kamenev.tsmp4j.algo.mp.MatrixProfileAlgorithm;
+import com.github.eugene.kamenev.tsmp4j.algo.mp.OnlineMatrixProfile;
+import com.github.eugene.kamenev.tsmp4j.stats.NoStatistic;
+import com.github.eugene.kamenev.tsmp4j.stats.RollingWindowStatistics;
+import com.github.eugene.kamenev.tsmp4j.stats.RollingWindowWithoutStatistics;
+import com.github.eugene.kamenev.tsmp4j.utils.Util;
+import java.util.Arrays;
+
+/**
+ * Real-time AAMP, non-normalized counterpart of STOMPI. Keeps the last row of windowed p-th power
+ * distances, every new point derives the next row from it with AAMP diagonal update:
+ * D(i, j) = D(i - 1, j - 1) - |x(i - 1) - x(j - 1)|^p + |x(i + m - 1) - x(j + m - 1)|^p, so
+ * matrix profile, left and right profiles are updated in O(n) per point. With positive history
+ * size, oldest points are evicted to keep a sliding horizon, indexes of evicted neighbours become
+ * negative, same as in {@link OnlineMatrixProfile#offset}.
+ */
+public class AAMPI implements MatrixProfileAlgorithm<NoStatistic, OnlineMatrixProfile> {
+
+    private final RollingWindowWithoutStatistics rollingStatistics;
+
+    private final int windowSize;
+
+    private final int historySize;
+
+    private final double exclusionZone;
+
+    private final int exclusionZoneSize;
+
+    private final double p;
+
+    private double[] x;
+    private double[] row;
+
+    private double[] mp;
+    private double[] left;
+    private double[] right;
+    private int[] mpi;
+    private int[] leftIndexes;
+    private int[] rightIndexes;
+
+    /**
+     * Physical index of the oldest live data point (and subsequence).
+     */
+    private int start = 0;
+
+    /**
+     * Number of live data points.
+     */
+    private int points = 0;
+
+    /**
+     * Number of evicted data points.
+     */
+    private int evicted = 0;
+
+    public AAMPI(int windowSize, int historySize, double exclusionZone, double p) {
+        this.rollingStatistics = new RollingWindowWithoutStatistics(windowSize, windowSize);
+        this.windowSize = windowSize;
+        this.historySize = historySize;
+        this.exclusionZone = exclusionZone;
+        this.exclusionZoneSize = (int) Math.floor(windowSize * exclusionZone + Util.EPS);
+        this.p = p;
+        allocate(Math.max(16, historySize > 0 ? historySize : windowSize * 4));
+    }
+
+    public AAMPI(int windowSize, int historySize, double p) {
+        this(windowSize, historySize, 0.5d, p);
+    }
+
+    @Override
+    public RollingWindowStatistics<NoStatistic> rollingStatistics() {
+        return this.rollingStatistics;
+    }
+
+    @Override
+    public OnlineMatrixProfile get(RollingWindowStatistics<NoStatistic> query) {
+        throw new UnsupportedOperationException("Not supported for AAMPI");
+    }
+
+    @Override
+    public void update(double value) {
+        this.rollingStatistics.apply(value);
+        if (historySize > 0 && points == historySize) {
+            start++;
+            points--;
+            evicted++;
+        }
+        ensureCapacity(start + points + 1);
+        x[start + points++] = value;
+        if (points >= windowSize) {
+            extend(points - windowSize);
+        }
+    }
+
+    /**
+     * @return number of data points evicted from history
+     */
+    public int offset() {
+        return this.evicted;
+    }
+
+    /**
+     * @return number of subsequences in current horizon
+     */
+    public int profileLength() {
+        return Math.max(0, points - windowSize + 1);
+    }
+
+    @Override
+    public OnlineMatrixProfile get() {
+        if (!this.isReady()) {
+            return null;
+        }
+        int len = profileLength();
+        var profile = new double[len];
+        var leftProfile = new double[len];
+        var rightProfile = new double[len];
+        var indexes = new int[len];
+        var left = new int[len];
+        var right = new int[len];
+        for (int i = 0; i < len; i++) {
+            int pi = start + i;
+            profile[i] = root(this.mp[pi]);
+            leftProfile[i] = root(this.left[pi]);
+            rightProfile[i] = root(this.right[pi]);
+            indexes[i] = relative(mpi[pi]);
+            left[i] = relative(leftIndexes[pi]);
+            right[i] = relative(rightIndexes[pi]);
+        }
+        return new BaseOnlineMatrixProfile(evicted, windowSize, exclusionZone, profile, indexes,
+            leftProfile, rightProfile, left, right);
+    }
+
+    private void extend(int j) {
+        int pj = start + j;
+        mp[pj] = left[pj] = right[pj] = Double.POSITIVE_INFINITY;
+        mpi[pj] = leftIndexes[pj] = rightIndexes[pj] = -1;
+
+        // row of previous subsequence is shifted along the diagonals, from the end
+        // to keep values of previous row that are still needed
+        for (int pi = pj; pi > start; pi--) {
+            row[pi] = row[pi - 1] - cost(x[pi - 1] - x[pj - 1])
+                + cost(x[pi + windowSize - 1] - x[pj + windowSize - 1]);
+        }
+        var D = 0.0d;
+        for (int k = 0; k < windowSize; k++) {
+            D += cost(x[start + k] - x[pj + k]);
+        }
+        row[start] = D;
+
+        for (int pi = start; pi < pj - exclusionZoneSize; pi++) {
+            D = row[pi];
+            if (D < mp[pi]) {
+                mp[pi] = D;
+                mpi[pi] = evicted + j;
+            }
+            if (D < right[pi]) {
+                right[pi] = D;
+                rightIndexes[pi] = evicted + j;
+            }
+            if (D < mp[pj]) {
+                mp[pj] = D;
+                mpi[pj] = evicted + pi - start;
+            }
+            if (D < left[pj]) {
+                left[pj] = D;
+                leftIndexes[pj] = evicted + pi - start;
+            }
+        }
+    }
+
+    private double cost(double d) {
+        if (p == 2.0d) {
+            return d * d;
+        }
+        if (p == 1.0d) {
+            return Math.abs(d);
+        }
+        return Math.pow(Math.abs(d), p);
+    }
+
+    private double root(double D) {
+        if (D == Double.POSITIVE_INFINITY) {
+            return D;
+        }
+        D = Math.max(D, 0);
+        if (p == 2.0d) {
+            return Math.sqrt(D);
+        }
+        return p == 1.0d ? D : Math.pow(D, 1.0 / p);
+    }
+
+    private int relative(int index) {
+        return index < 0 ? -1 : index - evicted;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= x.length) {
+            return;
+        }
+        if (start > 0 && points < x.length / 2) {
+            compact();
+            return;
+        }
+        compact();
+        var capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        row = Arrays.copyOf(row, capacity);
+        mp = Arrays.copyOf(mp, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        mpi = Arrays.copyOf(mpi, capacity);
+        leftIndexes = Arrays.copyOf(leftIndexes, capacity);
+        rightIndexes = Arrays.copyOf(rightIndexes, capacity);
+    }
+
+    private void compact() {
+        if (start == 0) {
+            return;
+        }
+        for (var array : new double[][]{x, row, mp, left, right}) {
+            System.arraycopy(array, start, array, 0, points);
+        }
+        for (var array : new int[][]{mpi, leftIndexes, rightIndexes}) {
+            System.arraycopy(array, start, array, 0, points);
+        }
+        start = 0;
+    }
+
+    private void allocate(int capacity) {
+        x = new double[capacity];
+        row = new double[capacity];
+        mp = new double[capacity];
+        left = new double[capacity];
+        right = new double[capacity];
+        mpi = new int[capacity];
+        leftIndexes = new int[capacity];
+        rightIndexes = new int[capacity];
+    }
+
+    public static AAMPI of(double[] ts, int windowSize, int historySize, double p) {
+        var aampi = new AAMPI(windowSize, historySize, p);
+        for (var value : ts) {
+            aampi.update(value);
+        }
+        return aampi;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.mp.mpx;
+
+import com.github.eugene.kamenev.tsmp4j.algo.mp.BaseMatrixProfile;
+
+/**
+ * Partial matrix profile of an anytime computation.
+ *
+ * @param matrixProfile     matrix profile computed so far
+ * @param computedDiagonals number of diagonals computed
+ * @param totalDiagonals    number of diagonals outside exclusion zone
+ * @param computedCells     number of distance matrix cells computed
+ * @param totalCells        number of distance matrix cells outside exclusion zone
+ * @param elapsedNanos      computation time
+ */
+public record AnytimeMatrixProfile(BaseMatrixProfile matrixProfile, int computedDiagonals,
+                                   int totalDiagonals, long computedCells, long totalCells,
+                                   long elapsedNanos) {
+
+    public double coverage() {
+        return totalCells == 0 ? 1.0d : (double) computedCells / totalCells;
+    }
+
+    public boolean isComplete() {
+        return computedDiagonals >= totalDiagonals;
+    }
+}
@@ -22,9 +22,16 @@ import static com.github.eugene.kamenev.tsmp4j.utils.Util.calMpDist;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.BaseMatrixProfile;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.BaseMatrixProfileAlgorithm;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.DistanceProfileFunction;
+import com.github.eugene.kamenev.tsmp4j.algo.mp.FloatMatrixProfile;
 import com.github.eugene.kamenev.tsmp4j.stats.RollingWindowStatistics;
-import com.github.eugene.kamenev.tsmp4j.stats.WindowStatistic;
+import com.github.eugene.kamenev.tsmp4j.utils.Parallel;
+import com.github.eugene.kamenev.tsmp4j.utils.Util;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Fast implementation of MatrixProfile and MatrixProfileIndex for internal purposes, without FFT
@@ -36,8 +43,15 @@ public class MPX extends BaseMatrixProfileAlgorithm<MPXStatistic, BaseMatrixProf
 
     private final boolean crossCorrelation;
 
+    /**
+     * Number of diagonal steps after which single precision covariance is recomputed from data.
+     */
+    public static final int FLOAT_RESEED = 1024;
+
     private final double threshold = 0.05;
 
+    private final ExecutorService executor;
+
     public MPX(int windowSize, int bufferSize, boolean crossCorrelation, double exclusionZone) {
         this(new MPXRollingWindowStatistics(windowSize, bufferSize), exclusionZone,
             crossCorrelation);
@@ -57,23 +71,47 @@ public class MPX extends BaseMatrixProfileAlgorithm<MPXStatistic, BaseMatrixProf
 
     public MPX(RollingWindowStatistics<MPXStatistic> rollingWindowStatistics,
         double exclusionZone, boolean crossCorrelation) {
+        this(rollingWindowStatistics, exclusionZone, crossCorrelation, null);
+    }
+
+    /**
+     * @param executor executor used to compute AB-join diagonals concurrently, null for serial
+     *                 execution
+     */
+    public MPX(RollingWindowStatistics<MPXStatistic> rollingWindowStatistics,
+        double exclusionZone, boolean crossCorrelation, ExecutorService executor) {
         super(rollingWindowStatistics, exclusionZone);
         this.crossCorrelation = crossCorrelation;
+        this.executor = executor;
     }
 
     @Override
     public BaseMatrixProfile get(double[] query) {
         if (this.isReady()) {
             var qs = MPXRollingWindowStatistics.of(query, this.rollingStatistics().windowSize());
-            return compute(this.rollingStatistics(), qs, crossCorrelation, this.exclusionZone);
+            return this.get(qs, true);
         }
         return null;
     }
 
     @Override
     public BaseMatrixProfile get(RollingWindowStatistics<MPXStatistic> query) {
+        return this.get(query, true);
+    }
+
+    /**
+     * AB-join with the query.
+     *
+     * @param query               query statistics
+     * @param computeQueryProfile if false, query side profile is skipped, only reference profile
+     *                            is computed
+     * @return join matrix profile, query side profile is stored as left profile
+     */
+    public BaseMatrixProfile get(RollingWindowStatistics<MPXStatistic> query,
+        boolean computeQueryProfile) {
         if (isReady()) {
-            return compute(this.rollingStatistics(), query, crossCorrelation, this.exclusionZone);
+            return join(MPXColumns.of(this.rollingStatistics()), MPXColumns.of(query),
+                crossCorrelation, this.exclusionZone, computeQueryProfile, this.executor);
         }
         return null;
     }
@@ -81,51 +119,270 @@ public class MPX extends BaseMatrixProfileAlgorithm<MPXStatistic, BaseMatrixProf
     @Override
     public BaseMatrixProfile get() {
         if (this.isReady()) {
-            var sb = ((MPXRollingWindowStatistics) this.rollingStatistics());
-
-            int n = sb.dataSize();
-            int w = sb.windowSize();
-            int profile_len = n - w + 1;
-
-            double[] mp = new double[profile_len];
-            int[] mpi = new int[profile_len];
-            var mean_0 = sb.mean(0);
-            for (int diag = exclusionZoneSize; diag < profile_len; diag++) {
-                var c = 0.0;
-                var mean_diag = sb.mean(diag);
-                for (var k = 0; k < w; k++) {
-                    c += (sb.x(diag + k) - mean_diag) * (sb.x(k) - mean_0);
-                }
+            return selfJoin(MPXColumns.of(this.rollingStatistics()), this.exclusionZoneSize,
+                this.crossCorrelation, this.exclusionZone);
+        }
+        return null;
+    }
 
-                for (var offset = 0; offset < n - w - diag + 1; offset++) {
-                    var col = offset + diag;
-                    c = c + sb.df(offset) * sb.dg(col) + sb.df(col) * sb.dg(offset);
-                    var c_cmp = c * sb.stdDev(offset) * sb.stdDev(col);
+    /**
+     * Anytime self-join, diagonals are visited in random (or stratified random) order until the
+     * diagonal budget or time budget is exhausted. Partial result is an upper bound of the exact
+     * matrix profile (a lower bound for correlation), it converges to the exact one as coverage
+     * grows.
+     *
+     * @param diagonalBudget maximum number of diagonals to compute
+     * @param timeBudget     maximum computation time, null for no limit
+     * @param stratified     if true, diagonal range is split into strata and each round takes one
+     *                       random diagonal from every stratum, so all lags get covered evenly
+     * @param seed           random seed for diagonal order
+     * @return partial matrix profile with coverage statistics
+     */
+    public AnytimeMatrixProfile getAnytime(int diagonalBudget, Duration timeBudget,
+        boolean stratified, long seed) {
+        if (this.isReady()) {
+            var columns = MPXColumns.of(this.rollingStatistics());
+            var order = diagonalOrder(this.exclusionZoneSize, columns.profileLength(), stratified,
+                new Random(seed));
+            return selfJoinAnytime(columns, this.exclusionZoneSize, this.crossCorrelation,
+                this.exclusionZone, order, diagonalBudget,
+                timeBudget == null ? Long.MAX_VALUE : timeBudget.toNanos());
+        }
+        return null;
+    }
 
-                    if (c_cmp > mp[offset]) {
-                        mp[offset] = c_cmp;
-                        mpi[offset] = col;
-                    }
+    public static BaseMatrixProfile selfJoin(MPXColumns columns, int exclusionZoneSize,
+        boolean crossCorrelation, double exclusionZone) {
+        int w = columns.windowSize();
+        int profile_len = columns.profileLength();
 
-                    if (c_cmp > mp[col]) {
-                        mp[col] = Math.min(c_cmp, 1.0);
-                        mpi[col] = offset;
-                    }
-                }
+        double[] mp = new double[profile_len];
+        int[] mpi = new int[profile_len];
+        for (int diag = exclusionZoneSize; diag < profile_len; diag++) {
+            computeDiagonal(columns, diag, mp, mpi);
+        }
+
+        postProcessSelfJoin(mp, w, crossCorrelation);
+        return new BaseMatrixProfile(w, exclusionZone, mp, mpi, null, null, null, null);
+    }
+
+    public static AnytimeMatrixProfile selfJoinAnytime(MPXColumns columns, int exclusionZoneSize,
+        boolean crossCorrelation, double exclusionZone, int[] diagonals, int diagonalBudget,
+        long timeBudgetNanos) {
+        int w = columns.windowSize();
+        int profile_len = columns.profileLength();
+        long start = System.nanoTime();
+
+        double[] mp = new double[profile_len];
+        int[] mpi = new int[profile_len];
+        int budget = Math.min(diagonalBudget, diagonals.length);
+        int computed = 0;
+        long cells = 0;
+        for (; computed < budget; computed++) {
+            if (System.nanoTime() - start >= timeBudgetNanos) {
+                break;
             }
+            var diag = diagonals[computed];
+            computeDiagonal(columns, diag, mp, mpi);
+            cells += profile_len - diag;
+        }
+        long elapsed = System.nanoTime() - start;
 
-            if (!this.crossCorrelation) {
-                var win = 2.0d * w;
-                for (var i = 0; i < profile_len; i++) {
-                    mp[i] = Math.sqrt(win * (1.0 - mp[i]));
+        postProcessSelfJoin(mp, w, crossCorrelation);
+        long totalCells = 0;
+        for (int diag = exclusionZoneSize; diag < profile_len; diag++) {
+            totalCells += profile_len - diag;
+        }
+        return new AnytimeMatrixProfile(
+            new BaseMatrixProfile(w, exclusionZone, mp, mpi, null, null, null, null),
+            computed, Math.max(0, profile_len - exclusionZoneSize), cells, totalCells, elapsed);
+    }
+
+    /**
+     * Random permutation of diagonals [from, to).
+     *
+     * @param stratified if true, range is split into ~sqrt(n) strata, permutation takes one random
+     *                   diagonal of every stratum per round
+     */
+    public static int[] diagonalOrder(int from, int to, boolean stratified, Random random) {
+        int n = Math.max(0, to - from);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = from + i;
+        }
+        if (!stratified) {
+            Util.shuffleArray(order, random);
+            return order;
+        }
+        int strata = Math.max(1, (int) Math.ceil(Math.sqrt(n)));
+        int size = (n + strata - 1) / Math.max(1, strata);
+        for (int s = 0; s * size < n; s++) {
+            shuffleRange(order, s * size, Math.min(n, (s + 1) * size), random);
+        }
+        int[] result = new int[n];
+        int k = 0;
+        for (int round = 0; round < size; round++) {
+            for (int s = 0; s * size < n; s++) {
+                int i = s * size + round;
+                if (i < Math.min(n, (s + 1) * size)) {
+                    result[k++] = order[i];
                 }
             }
-            return new BaseMatrixProfile(sb.windowSize(), exclusionZone, mp, mpi,
-                null, null, null, null);
+        }
+        return result;
+    }
+
+    private static void shuffleRange(int[] array, int from, int to, Random random) {
+        for (int i = to - 1; i > from; i--) {
+            int index = from + random.nextInt(i - from + 1);
+            int temp = array[index];
+            array[index] = array[i];
+            array[i] = temp;
+        }
+    }
+
+    private static void computeDiagonal(MPXColumns columns, int diag, double[] mp, int[] mpi) {
+        int w = columns.windowSize();
+        int profile_len = columns.profileLength();
+        double[] x = columns.x(), mean = columns.mean(), sig = columns.sig(), df = columns.df(),
+            dg = columns.dg();
+
+        var c = 0.0;
+        var mean_0 = mean[0];
+        var mean_diag = mean[diag];
+        for (var k = 0; k < w; k++) {
+            c += (x[diag + k] - mean_diag) * (x[k] - mean_0);
+        }
+
+        for (var offset = 0; offset < profile_len - diag; offset++) {
+            var col = offset + diag;
+            c = c + df[offset] * dg[col] + df[col] * dg[offset];
+            var c_cmp = c * sig[offset] * sig[col];
+
+            if (c_cmp > mp[offset]) {
+                mp[offset] = c_cmp;
+                mpi[offset] = col;
+            }
+
+            if (c_cmp > mp[col]) {
+                mp[col] = Math.min(c_cmp, 1.0);
+                mpi[col] = offset;
+            }
+        }
+    }
+
+    private static void postProcessSelfJoin(double[] mp, int w, boolean crossCorrelation) {
+        if (!crossCorrelation) {
+            var win = 2.0d * w;
+            for (var i = 0; i < mp.length; i++) {
+                mp[i] = Math.sqrt(win * (1.0 - mp[i]));
+            }
+        }
+    }
+
+    /**
+     * Single precision self-join, see {@link #selfJoinFloat}.
+     */
+    public FloatMatrixProfile getFloat() {
+        if (this.isReady()) {
+            var stats = this.rollingStatistics();
+            return selfJoinFloat(FloatColumns.of(stats), stats.windowSize(),
+                this.exclusionZoneSize, this.crossCorrelation, this.exclusionZone);
+        }
+        return null;
+    }
+
+    /**
+     * Single precision AB-join, see {@link #joinFloat}.
+     */
+    public FloatMatrixProfile getFloat(RollingWindowStatistics<MPXStatistic> query) {
+        if (this.isReady()) {
+            var stats = this.rollingStatistics();
+            return joinFloat(FloatColumns.of(stats), FloatColumns.of(query), stats.windowSize(),
+                this.crossCorrelation, this.exclusionZone);
         }
         return null;
     }
 
+    /**
+     * Self-join computed and stored in single precision. Like SCAMP, data is centred by its mean
+     * before narrowing to float, covariance is accumulated over mean-centred subsequences and is
+     * recomputed from data every {@link #FLOAT_RESEED} steps of a diagonal, so float rounding
+     * error does not grow with series length. Columns are narrowed into a float copy, instance
+     * methods build float columns directly from statistics, without double columns.
+     */
+    public static FloatMatrixProfile selfJoinFloat(MPXColumns columns, int exclusionZoneSize,
+        boolean crossCorrelation, double exclusionZone) {
+        return selfJoinFloat(FloatColumns.of(columns), columns.windowSize(), exclusionZoneSize,
+            crossCorrelation, exclusionZone);
+    }
+
+    private static FloatMatrixProfile selfJoinFloat(FloatColumns fc, int w,
+        int exclusionZoneSize, boolean crossCorrelation, double exclusionZone) {
+        int profile_len = fc.mean().length;
+        float[] sig = fc.sig, df = fc.df, dg = fc.dg;
+
+        float[] mp = new float[profile_len];
+        int[] mpi = new int[profile_len];
+        for (int diag = exclusionZoneSize; diag < profile_len; diag++) {
+            float c = 0f;
+            for (int offset = 0; offset < profile_len - diag; offset++) {
+                var col = offset + diag;
+                if (offset % FLOAT_RESEED == 0) {
+                    c = fc.cov(offset, fc, col, w);
+                } else {
+                    c = c + df[offset] * dg[col] + df[col] * dg[offset];
+                }
+                var c_cmp = c * sig[offset] * sig[col];
+
+                if (c_cmp > mp[offset]) {
+                    mp[offset] = c_cmp;
+                    mpi[offset] = col;
+                }
+
+                if (c_cmp > mp[col]) {
+                    mp[col] = Math.min(c_cmp, 1.0f);
+                    mpi[col] = offset;
+                }
+            }
+        }
+
+        if (!crossCorrelation) {
+            var win = 2.0d * w;
+            for (var i = 0; i < profile_len; i++) {
+                mp[i] = (float) Math.sqrt(win * Math.max(0, 1.0 - mp[i]));
+            }
+        }
+        return new FloatMatrixProfile(w, exclusionZone, mp, mpi);
+    }
+
+    /**
+     * AB-join computed and stored in single precision, query side profile is stored as left
+     * profile.
+     */
+    public static FloatMatrixProfile joinFloat(MPXColumns ts, MPXColumns qs,
+        boolean crossCorrelation, double exclusionZone) {
+        return joinFloat(FloatColumns.of(ts), FloatColumns.of(qs), ts.windowSize(),
+            crossCorrelation, exclusionZone);
+    }
+
+    private static FloatMatrixProfile joinFloat(FloatColumns a, FloatColumns b, int w,
+        boolean crossCorrelation, double exclusionZone) {
+        float[] mp = new float[a.mean().length];
+        int[] mpi = new int[mp.length];
+        float[] mpb = new float[b.mean().length];
+        int[] mpib = new int[mpb.length];
+        Arrays.fill(mp, -1.0f);
+        Arrays.fill(mpb, -1.0f);
+
+        computeJoinFloat(a, b, mp, mpi, mpb, mpib, w);
+        computeJoinFloat(b, a, mpb, mpib, mp, mpi, w);
+
+        postProcessFloat(mp, w, crossCorrelation);
+        postProcessFloat(mpb, w, crossCorrelation);
+        return new FloatMatrixProfile(w, exclusionZone, mp, mpi, null, mpb, null, mpib);
+    }
+
     @Override
     public DistanceProfile apply(DistanceProfileQuery<MPXStatistic> dsq) {
         var d = dsq.data().dataSize() < dsq.query().dataSize() ? dsq.query() : dsq.data();
@@ -154,59 +411,129 @@ public class MPX extends BaseMatrixProfileAlgorithm<MPXStatistic, BaseMatrixProf
         return mpx.get();
     }
 
-    private static BaseMatrixProfile compute(RollingWindowStatistics<MPXStatistic> ts,
-        RollingWindowStatistics<MPXStatistic> qs, boolean crossCorrelation, double exclusionZone) {
-
-        int n = ts.dataSize();
-        int qn = qs.dataSize();
+    /**
+     * Computes AB-join matrix profile over primitive columns of both series. Diagonals of both join
+     * directions are split into chunks of equal work, each chunk is computed into its own partial
+     * profile, partials are merged in diagonal order, hence the result does not depend on
+     * scheduling and is equal to the serial one.
+     *
+     * @param ts                  reference data
+     * @param qs                  query data
+     * @param crossCorrelation    return pearson correlation instead of euclidean distance
+     * @param exclusionZone       exclusion zone recorded in result
+     * @param computeQueryProfile if false, only reference (A-side) profile is computed and
+     *                            {@code leftProfile}/{@code leftIndexes} of result are null
+     * @param executor            executor to run chunks on, null for serial execution
+     * @return join matrix profile
+     */
+    public static BaseMatrixProfile join(MPXColumns ts, MPXColumns qs, boolean crossCorrelation,
+        double exclusionZone, boolean computeQueryProfile, ExecutorService executor) {
         int w = ts.windowSize();
-
-        int profile_len = n - w + 1;
-        int profile_lenb = qn - w + 1;
-
-        double[] mp = new double[profile_len];
-        int[] mpi = new int[profile_len];
-        double[] mpb = new double[profile_lenb];
-        int[] mpib = new int[profile_lenb];
-        for (int i = 0; i < profile_len; i++) {
-            mp[i] = -1.0;
-            if (i < profile_lenb) {
-                mpb[i] = -1;
+        int amx = ts.profileLength();
+        int bmx = qs.profileLength();
+        int bLen = computeQueryProfile ? bmx : -1;
+
+        JoinProfile result;
+        int parts = Parallel.parallelism(executor);
+        if (parts < 2) {
+            result = new JoinProfile(amx, bLen);
+            // AB Join
+            computeJoin(ts, qs, result.mp, result.mpi, result.mpb, result.mpib, 0, amx);
+            // BA Join
+            computeJoin(qs, ts, result.mpb, result.mpib, result.mp, result.mpi, 0, bmx);
+        } else {
+            // diagonals of AB join go first, then diagonals of BA join
+            int[] bounds = Parallel.split(amx + bmx, parts,
+                d -> (d < amx ? Math.min(amx - d, bmx) : Math.min(amx + bmx - d, amx)) + w);
+            var tasks = new ArrayList<Callable<JoinProfile>>();
+            for (int k = 0; k < bounds.length - 1; k++) {
+                int from = bounds[k];
+                int to = bounds[k + 1];
+                if (from == to) {
+                    continue;
+                }
+                tasks.add(() -> {
+                    var partial = new JoinProfile(amx, bLen);
+                    if (from < amx) {
+                        computeJoin(ts, qs, partial.mp, partial.mpi, partial.mpb, partial.mpib,
+                            from, Math.min(to, amx));
+                    }
+                    if (to > amx) {
+                        computeJoin(qs, ts, partial.mpb, partial.mpib, partial.mp, partial.mpi,
+                            Math.max(from, amx) - amx, to - amx);
+                    }
+                    return partial;
+                });
+            }
+            var partials = Parallel.invokeAll(executor, tasks);
+            result = partials.get(0);
+            for (int k = 1; k < partials.size(); k++) {
+                result.merge(partials.get(k));
             }
         }
 
-        // AB Join
-        computeJoin(ts, qs, mp, mpi, mpb, mpib, w);
-        // BA Join
-        computeJoin(qs, ts, mpb, mpib, mp, mpi, w);
-
-        postProcess(mp, w, crossCorrelation);
-        postProcess(mpb, w, crossCorrelation);
+        postProcess(result.mp, w, crossCorrelation);
+        if (result.mpb != null) {
+            postProcess(result.mpb, w, crossCorrelation);
+        }
 
-        return new BaseMatrixProfile(w, exclusionZone, mp, mpi, null, mpb, null, mpib);
+        return new BaseMatrixProfile(w, exclusionZone, result.mp, result.mpi, null, result.mpb,
+            null, result.mpib);
     }
 
-    private static <S extends WindowStatistic> void computeJoin(RollingWindowStatistics<S> a,
-        RollingWindowStatistics<S> b,
-        double[] mp, int[] mpi, double[] mpb, int[] mpib, int w) {
-        int amx = a.getStatsBuffer().getLength() - w + 1;
-        int bmx = b.getStatsBuffer().getLength() - w + 1;
-
-        var sa = (MPXRollingWindowStatistics) a;
-        var sb = (MPXRollingWindowStatistics) b;
-        double b_mean_0 = b.mean(0);
-        for (int ia = 0; ia < amx; ia++) {
+    private static void computeJoin(MPXColumns a, MPXColumns b, double[] mp, int[] mpi,
+        double[] mpb, int[] mpib, int from, int to) {
+        int w = a.windowSize();
+        int amx = a.profileLength();
+        int bmx = b.profileLength();
+        double[] ax = a.x(), aMean = a.mean(), aSig = a.sig(), aDf = a.df(), aDg = a.dg();
+        double[] bx = b.x(), bSig = b.sig(), bDf = b.df(), bDg = b.dg();
+        boolean updateA = mp != null;
+        boolean updateB = mpb != null;
+
+        double b_mean_0 = b.mean()[0];
+        for (int ia = from; ia < to; ia++) {
             int mx = Math.min(amx - ia, bmx);
             double c = 0;
-            double mean_ia = a.mean(ia);
+            double mean_ia = aMean[ia];
 
             for (int i = 0; i < w; i++) {
-                c += (a.x(ia + i) - mean_ia) * (b.x(i) - b_mean_0);
+                c += (ax[ia + i] - mean_ia) * (bx[i] - b_mean_0);
+            }
+
+            for (int ib = 0; ib < mx; ib++) {
+                c += aDf[ib + ia] * bDg[ib] + aDg[ib + ia] * bDf[ib];
+                double c_cmp = c * aSig[ib + ia] * bSig[ib];
+
+                if (updateA && c_cmp > mp[ib + ia]) {
+                    mp[ib + ia] = c_cmp;
+                    mpi[ib + ia] = ib;
+                }
+
+                if (updateB && c_cmp > mpb[ib]) {
+                    mpb[ib] = c_cmp;
+                    mpib[ib] = ia + ib;
+                }
             }
+        }
+    }
 
+    private static void computeJoinFloat(FloatColumns a, FloatColumns b, float[] mp, int[] mpi,
+        float[] mpb, int[] mpib, int w) {
+        int amx = a.sig.length;
+        int bmx = b.sig.length;
+        float[] aSig = a.sig, aDf = a.df, aDg = a.dg;
+        float[] bSig = b.sig, bDf = b.df, bDg = b.dg;
+        for (int ia = 0; ia < amx; ia++) {
+            int mx = Math.min(amx - ia, bmx);
+            float c = 0f;
             for (int ib = 0; ib < mx; ib++) {
-                c += sa.df(ib + ia) * sb.dg(ib) + sa.dg(ib + ia) * sb.df(ib);
-                double c_cmp = c * a.stdDev(ib + ia) * b.stdDev(ib);
+                if (ib % FLOAT_RESEED == 0) {
+                    c = a.cov(ib + ia, b, ib, w);
+                } else {
+                    c += aDf[ib + ia] * bDg[ib] + aDg[ib + ia] * bDf[ib];
+                }
+                float c_cmp = c * aSig[ib + ia] * bSig[ib];
 
                 if (c_cmp > mp[ib + ia]) {
                     mp[ib + ia] = c_cmp;
@@ -221,6 +548,20 @@ public class MPX extends BaseMatrixProfileAlgorithm<MPXStatistic, BaseMatrixProf
         }
     }
 
+    private static void postProcessFloat(float[] mp, int w, boolean crossCorrelation) {
+        for (int i = 0; i < mp.length; i++) {
+            if (!crossCorrelation) {
+                if (mp[i] == -1.0f) {
+                    mp[i] = Float.POSITIVE_INFINITY;
+                } else {
+                    mp[i] = (float) Math.sqrt(2.0 * w * Math.max(0, 1.0 - mp[i]));
+                }
+            } else if (mp[i] > 1.0f) {
+                mp[i] = 1.0f;
+            }
+        }
+    }
+
     private static void postProcess(double[] mp, int w, boolean crossCorrelation) {
         int len = mp.length;
         for (int i = 0; i < len; i++) {
@@ -242,4 +583,114 @@ public class MPX extends BaseMatrixProfileAlgorithm<MPXStatistic, BaseMatrixProf
             }
         }
     }
+
+    /**
+     * Correlation profile of a join (or its part), values start from -1.
+     */
+    private static final class JoinProfile {
+
+        private final double[] mp;
+        private final int[] mpi;
+        private final double[] mpb;
+        private final int[] mpib;
+
+        private JoinProfile(int aLength, int bLength) {
+            this.mp = new double[aLength];
+            this.mpi = new int[aLength];
+            Arrays.fill(this.mp, -1.0);
+            if (bLength >= 0) {
+                this.mpb = new double[bLength];
+                this.mpib = new int[bLength];
+                Arrays.fill(this.mpb, -1.0);
+            } else {
+                this.mpb = null;
+                this.mpib = null;
+            }
+        }
+
+        private void merge(JoinProfile other) {
+            merge(mp, mpi, other.mp, other.mpi);
+            if (mpb != null) {
+                merge(mpb, mpib, other.mpb, other.mpib);
+            }
+        }
+
+        private static void merge(double[] mp, int[] mpi, double[] otherMp, int[] otherMpi) {
+            for (int i = 0; i < mp.length; i++) {
+                if (otherMp[i] > mp[i]) {
+                    mp[i] = otherMp[i];
+                    mpi[i] = otherMpi[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Mean-centred single precision copy of {@link MPXColumns}.
+     */
+    private record FloatColumns(float[] x, float[] mean, float[] sig, float[] df, float[] dg) {
+
+        private float cov(int i, FloatColumns other, int j, int w) {
+            double c = 0;
+            double mi = mean[i];
+            double mj = other.mean[j];
+            for (int k = 0; k < w; k++) {
+                c += (x[i + k] - mi) * (other.x[j + k] - mj);
+            }
+            return (float) c;
+        }
+
+        private static FloatColumns of(MPXColumns columns) {
+            double center = 0;
+            for (double v : columns.x()) {
+                center += v;
+            }
+            center /= columns.x().length;
+            var x = new float[columns.x().length];
+            for (int i = 0; i < x.length; i++) {
+                x[i] = (float) (columns.x()[i] - center);
+            }
+            var mean = new float[columns.mean().length];
+            for (int i = 0; i < mean.length; i++) {
+                mean[i] = (float) (columns.mean()[i] - center);
+            }
+            return new FloatColumns(x, mean, FloatMatrixProfile.narrow(columns.sig()),
+                FloatMatrixProfile.narrow(columns.df()), FloatMatrixProfile.narrow(columns.dg()));
+        }
+
+        /**
+         * Same values as narrowing {@link MPXColumns#of(RollingWindowStatistics)}, without
+         * building double columns first.
+         */
+        private static FloatColumns of(RollingWindowStatistics<MPXStatistic> stats) {
+            int w = stats.windowSize();
+            int n = stats.dataSize();
+            int len = n - w + 1;
+            var buffer = stats.getStatsBuffer();
+            double center = 0;
+            for (int k = 0; k < n; k++) {
+                center += buffer.get(k).x();
+            }
+            center /= n;
+            var x = new float[n];
+            var mean = new float[len];
+            var sig = new float[len];
+            var df = new float[len];
+            var dg = new float[len];
+            for (int k = 0; k < n; k++) {
+                var s = buffer.get(k);
+                x[k] = (float) (s.x() - center);
+                int i = k - w + 1;
+                if (i >= 0) {
+                    mean[i] = (float) (s.mean() - center);
+                    sig[i] = (float) s.stdDev();
+                    if (i > 0) {
+                        df[i] = (float) s.df();
+                        dg[i] = (float) s.dg();
+                    }
+                }
+            }
+            return new FloatColumns(x, mean, sig, df, dg);
+        }
+    }
 }
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.mp.mpx;
+
+import com.github.eugene.kamenev.tsmp4j.stats.PrefixSumStatistics;
+import com.github.eugene.kamenev.tsmp4j.stats.RollingWindowStatistics;
+
+/**
+ * Primitive column view of MPX statistics, so hot loops do not go through the circular buffer
+ * and statistic records. Values of {@code mean}, {@code sig}, {@code df} and {@code dg} are
+ * indexed by subsequence start, {@code x} by data point.
+ *
+ * @param windowSize window size
+ * @param x          data points
+ * @param mean       subsequence means
+ * @param sig        inverse subsequence norms, 1 / (stdDev * sqrt(windowSize))
+ * @param df         MPX df vector, df[0] is always zero
+ * @param dg         MPX dg vector, dg[0] is always zero
+ */
+public record MPXColumns(int windowSize, double[] x, double[] mean, double[] sig, double[] df,
+                         double[] dg) {
+
+    public int profileLength() {
+        return mean.length;
+    }
+
+    public static MPXColumns of(RollingWindowStatistics<MPXStatistic> stats) {
+        int w = stats.windowSize();
+        int n = stats.dataSize();
+        int len = n - w + 1;
+        var buffer = stats.getStatsBuffer();
+        double[] x = new double[n];
+        double[] mean = new double[len];
+        double[] sig = new double[len];
+        double[] df = new double[len];
+        double[] dg = new double[len];
+        for (int k = 0; k < n; k++) {
+            var s = buffer.get(k);
+            x[k] = s.x();
+            int i = k - w + 1;
+            if (i >= 0) {
+                mean[i] = s.mean();
+                sig[i] = s.stdDev();
+                if (i > 0) {
+                    df[i] = s.df();
+                    dg[i] = s.dg();
+                }
+            }
+        }
+        return new MPXColumns(w, x, mean, sig, df, dg);
+    }
+
+    /**
+     * Computes columns from raw data with the same K-shifted rolling arithmetic as
+     * {@link MPXRollingWindowStatistics}, so values are equal to columns of statistics built from
+     * the same series, without creating per point statistic objects.
+     *
+     * @param ts         data points, NaN and infinite values are replaced with zero
+     * @param windowSize window size
+     * @return primitive columns
+     */
+    public static MPXColumns of(double[] ts, int windowSize) {
+        int w = windowSize;
+        int n = ts.length;
+        int len = n - w + 1;
+        double[] x = new double[n];
+        double[] mean = new double[len];
+        double[] sig = new double[len];
+        double[] df = new double[len];
+        double[] dg = new double[len];
+        double K = 0;
+        double Ex = 0;
+        double Ex2 = 0;
+        int count = 0;
+        double prevMean = 0;
+        for (int k = 0; k < n; k++) {
+            double value = ts[k];
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                value = 0.0d;
+            }
+            x[k] = value;
+            if (k >= w) {
+                double diff = x[k - w] - K;
+                Ex -= diff;
+                Ex2 -= diff * diff;
+                count--;
+            }
+            if (count == 0) {
+                K = value;
+            }
+            double diff = value - K;
+            Ex += diff;
+            Ex2 += diff * diff;
+            count++;
+            double m = K + Ex / count;
+            int i = k - w + 1;
+            if (i >= 0) {
+                double variance = (Ex2 - Ex * Ex / count) / count;
+                mean[i] = m;
+                sig[i] = count > 2 ? 1 / Math.sqrt(variance * count) : 0;
+                if (i > 0) {
+                    df[i] = 0.5 * (value - x[k - w]);
+                    dg[i] = (value - m) + (x[k - w] - prevMean);
+                }
+            }
+            prevMean = m;
+        }
+        return new MPXColumns(w, x, mean, sig, df, dg);
+    }
+
+    /**
+     * Derives columns of a window size from prefix sum statistics, data points are shared with
+     * statistics.
+     */
+    public static MPXColumns of(PrefixSumStatistics stats, int windowSize) {
+        int w = windowSize;
+        double[] x = stats.data();
+        int len = x.length - w + 1;
+        double[] mean = new double[len];
+        double[] sig = new double[len];
+        double[] df = new double[len];
+        double[] dg = new double[len];
+        for (int i = 0; i < len; i++) {
+            mean[i] = stats.mean(i, w);
+            sig[i] = w > 2 ? 1 / Math.sqrt(stats.variance(i, w) * w) : 0;
+            if (i > 0) {
+                df[i] = 0.5 * (x[i + w - 1] - x[i - 1]);
+                dg[i] = (x[i + w - 1] - mean[i]) + (x[i - 1] - mean[i - 1]);
+            }
+        }
+        return new MPXColumns(w, x, mean, sig, df, dg);
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.mp.mpxi;
+
+import com.github.eugene.kamenev.tsmp4j.algo.mp.BaseOnlineMatrixProfile;
+import com.github.eugene.kamenev.tsmp4j.algo.mp.MatrixProfileAlgorithm;
+import com.github.eugene.kamenev.tsmp4j.algo.mp.OnlineMatrixProfile;
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPXRollingWindowStatistics;
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPXStatistic;
+import com.github.eugene.kamenev.tsmp4j.stats.RollingWindowStatistics;
+import com.github.eugene.kamenev.tsmp4j.utils.Util;
+import java.util.Arrays;
+
+/**
+ * Incremental MPX. Keeps the last covariance of every diagonal of the self-join distance matrix, so
+ * a new data point only extends each diagonal by one cell with MPX df/dg update, which costs O(n)
+ * per point instead of recomputing all diagonals. Matrix profile, left and right profiles are
+ * maintained. With positive history size, oldest points are evicted to keep a sliding horizon,
+ * indexes of evicted neighbours become negative, same as in {@link OnlineMatrixProfile#offset}.
+ */
+public class MPXI implements MatrixProfileAlgorithm<MPXStatistic, OnlineMatrixProfile> {
+
+    private final MPXRollingWindowStatistics rollingStatistics;
+
+    private final int windowSize;
+
+    private final int historySize;
+
+    private final double exclusionZone;
+
+    private final int exclusionZoneSize;
+
+    private double[] x;
+    private double[] mean;
+    private double[] sig;
+    private double[] df;
+    private double[] dg;
+    private double[] cov;
+
+    private double[] mp;
+    private double[] left;
+    private double[] right;
+    private int[] mpi;
+    private int[] leftIndexes;
+    private int[] rightIndexes;
+
+    /**
+     * Physical index of the oldest live data point (and subsequence).
+     */
+    private int start = 0;
+
+    /**
+     * Number of live data points.
+     */
+    private int points = 0;
+
+    /**
+     * Number of evicted data points.
+     */
+    private int evicted = 0;
+
+    public MPXI(int windowSize, int historySize, double exclusionZone) {
+        this.rollingStatistics = new MPXRollingWindowStatistics(windowSize, windowSize);
+        this.windowSize = windowSize;
+        this.historySize = historySize;
+        this.exclusionZone = exclusionZone;
+        this.exclusionZoneSize = (int) Math.floor(windowSize * exclusionZone + Util.EPS);
+        allocate(Math.max(16, historySize > 0 ? historySize : windowSize * 4));
+    }
+
+    public MPXI(int windowSize, int historySize) {
+        this(windowSize, historySize, 0.5d);
+    }
+
+    @Override
+    public RollingWindowStatistics<MPXStatistic> rollingStatistics() {
+        return this.rollingStatistics;
+    }
+
+    @Override
+    public OnlineMatrixProfile get(RollingWindowStatistics<MPXStatistic> query) {
+        throw new UnsupportedOperationException("Not supported for MPXI");
+    }
+
+    @Override
+    public void update(double value) {
+        var stat = this.rollingStatistics.apply(value);
+        if (historySize > 0 && points == historySize) {
+            start++;
+            points--;
+            evicted++;
+        }
+        ensureCapacity(start + points + 1);
+        x[start + points++] = stat.x();
+        if (points >= windowSize) {
+            extend(points - windowSize, stat);
+        }
+    }
+
+    /**
+     * @return number of data points evicted from history
+     */
+    public int offset() {
+        return this.evicted;
+    }
+
+    /**
+     * @return number of subsequences in current horizon
+     */
+    public int profileLength() {
+        return Math.max(0, points - windowSize + 1);
+    }
+
+    /**
+     * @param i subsequence index in current horizon
+     * @return left nearest neighbour index in current horizon, negative if it was evicted or there
+     * is no left neighbour
+     */
+    public int leftIndex(int i) {
+        var idx = leftIndexes[start + i];
+        return idx < 0 ? -1 : idx - evicted;
+    }
+
+    /**
+     * @param i subsequence index in current horizon
+     * @return right nearest neighbour index in current horizon, -1 if there is none yet
+     */
+    public int rightIndex(int i) {
+        var idx = rightIndexes[start + i];
+        return idx < 0 ? -1 : idx - evicted;
+    }
+
+    /**
+     * @param i subsequence index in current horizon
+     * @return z-normalized euclidean distance to left nearest neighbour
+     */
+    public double leftDistance(int i) {
+        return distance(left[start + i]);
+    }
+
+    @Override
+    public OnlineMatrixProfile get() {
+        if (!this.isReady()) {
+            return null;
+        }
+        int len = profileLength();
+        var profile = new double[len];
+        var leftProfile = new double[len];
+        var rightProfile = new double[len];
+        var indexes = new int[len];
+        var left = new int[len];
+        var right = new int[len];
+        for (int i = 0; i < len; i++) {
+            int p = start + i;
+            profile[i] = distance(this.mp[p]);
+            leftProfile[i] = distance(this.left[p]);
+            rightProfile[i] = distance(this.right[p]);
+            indexes[i] = mpi[p] < 0 ? -1 : mpi[p] - evicted;
+            left[i] = leftIndex(i);
+            right[i] = rightIndex(i);
+        }
+        return new BaseOnlineMatrixProfile(evicted, windowSize, exclusionZone, profile, indexes,
+            leftProfile, rightProfile, left, right);
+    }
+
+    private void extend(int j, MPXStatistic stat) {
+        int pj = start + j;
+        mean[pj] = stat.mean();
+        sig[pj] = stat.stdDev();
+        df[pj] = stat.df();
+        dg[pj] = stat.dg();
+        mp[pj] = left[pj] = right[pj] = Double.NEGATIVE_INFINITY;
+        mpi[pj] = leftIndexes[pj] = rightIndexes[pj] = -1;
+
+        // extend existing diagonals by a cell in the new column
+        for (int d = exclusionZoneSize; d < j; d++) {
+            int pi = pj - d;
+            cov[d] += df[pi] * dg[pj] + df[pj] * dg[pi];
+            compare(pi, pj, cov[d]);
+        }
+
+        // diagonal starting at the oldest subsequence is computed from data
+        if (j >= exclusionZoneSize) {
+            var c = 0.0d;
+            var mean_0 = mean[start];
+            for (int k = 0; k < windowSize; k++) {
+                c += (x[pj + k] - mean[pj]) * (x[start + k] - mean_0);
+            }
+            cov[j] = c;
+            compare(start, pj, c);
+        }
+    }
+
+    private void compare(int pi, int pj, double c) {
+        var c_cmp = c * sig[pi] * sig[pj];
+        if (c_cmp > mp[pi]) {
+            mp[pi] = c_cmp;
+            mpi[pi] = evicted + pj - start;
+        }
+        if (c_cmp > right[pi]) {
+            right[pi] = c_cmp;
+            rightIndexes[pi] = evicted + pj - start;
+        }
+        c_cmp = Math.min(c_cmp, 1.0d);
+        if (c_cmp > mp[pj]) {
+            mp[pj] = c_cmp;
+            mpi[pj] = evicted + pi - start;
+        }
+        if (c_cmp > left[pj]) {
+            left[pj] = c_cmp;
+            leftIndexes[pj] = evicted + pi - start;
+        }
+    }
+
+    private double distance(double corr) {
+        if (corr == Double.NEGATIVE_INFINITY) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.sqrt(2.0d * windowSize * Math.max(0, 1.0d - corr));
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= x.length) {
+            return;
+        }
+        if (start > 0 && points < x.length / 2) {
+            compact();
+            return;
+        }
+        compact();
+        var capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        mean = Arrays.copyOf(mean, capacity);
+        sig = Arrays.copyOf(sig, capacity);
+        df = Arrays.copyOf(df, capacity);
+        dg = Arrays.copyOf(dg, capacity);
+        cov = Arrays.copyOf(cov, capacity);
+        mp = Arrays.copyOf(mp, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        mpi = Arrays.copyOf(mpi, capacity);
+        leftIndexes = Arrays.copyOf(leftIndexes, capacity);
+        rightIndexes = Arrays.copyOf(rightIndexes, capacity);
+    }
+
+    private void compact() {
+        if (start == 0) {
+            return;
+        }
+        for (var array : new double[][]{x, mean, sig, df, dg, mp, left, right}) {
+            System.arraycopy(array, start, array, 0, points);
+        }
+        for (var array : new int[][]{mpi, leftIndexes, rightIndexes}) {
+            System.arraycopy(array, start, array, 0, points);
+        }
+        start = 0;
+    }
+
+    private void allocate(int capacity) {
+        x = new double[capacity];
+        mean = new double[capacity];
+        sig = new double[capacity];
+        df = new double[capacity];
+        dg = new double[capacity];
+        cov = new double[capacity];
+        mp = new double[capacity];
+        left = new double[capacity];
+        right = new double[capacity];
+        mpi = new int[capacity];
+        leftIndexes = new int[capacity];
+        rightIndexes = new int[capacity];
+    }
+
+    public static MPXI of(double[] ts, int windowSize, int historySize) {
+        var mpxi = new MPXI(windowSize, historySize);
+        for (var value : ts) {
+            mpxi.update(value);
+        }
+        return mpxi;
+    }
+}
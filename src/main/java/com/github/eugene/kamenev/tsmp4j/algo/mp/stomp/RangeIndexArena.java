@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.mp.stomp;
+
+import com.github.eugene.kamenev.tsmp4j.algo.mp.stomp.RangeIndexMatrixProfile.RangeIndex;
+import java.util.Arrays;
+
+/**
+ * Range indexes of every row packed into a single pair of primitive arrays. Range index of a kind
+ * and row is a segment of the arena, an empty segment stands for a missing range index. Rows are
+ * appended in ascending order, all four kinds of a row are computed by one forward and one
+ * backward sweep over its distance profile, each tracking two minimums so far, instead of four
+ * separate scans.
+ */
+public final class RangeIndexArena {
+
+    /**
+     * Minimums so far from the row towards the start.
+     */
+    public static final int SUB_TO_LEFT = 0;
+
+    /**
+     * Minimums so far from the row towards the end.
+     */
+    public static final int SUB_TO_RIGHT = 1;
+
+    /**
+     * Minimums so far from the start towards the end.
+     */
+    public static final int LEFT_TO_RIGHT = 2;
+
+    /**
+     * Minimums so far from the end towards the second subsequence.
+     */
+    public static final int RIGHT_TO_LEFT = 3;
+
+    private static final int KINDS = 4;
+
+    private final int rows;
+
+    private final int[] offsets;
+
+    private int[] indexes;
+
+    private double[] values;
+
+    private int size = 0;
+
+    /**
+     * Number of segments which offsets are final.
+     */
+    private int segments = 0;
+
+    /*
+     * Scratch buffers of a row.
+     */
+    private int[] fromStart = new int[0];
+    private int[] fromRow = new int[0];
+    private int[] toStart = new int[0];
+    private int[] fromEnd = new int[0];
+
+    public RangeIndexArena(int rows) {
+        this.rows = rows;
+        this.offsets = new int[KINDS * rows + 1];
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8,
+            Math.max(16L, KINDS * (long) rows * Math.max(1, (int) Math.ceil(Math.log(rows)))));
+        this.indexes = new int[capacity];
+        this.values = new double[capacity];
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * @return number of entries in range index of the kind and row
+     */
+    public int size(int kind, int row) {
+        int s = KINDS * row + kind;
+        return s < segments ? offsets[s + 1] - offsets[s] : 0;
+    }
+
+    /**
+     * @return subsequence index of j-th entry, in scan order
+     */
+    public int index(int kind, int row, int j) {
+        return indexes[offsets[KINDS * row + kind] + j];
+    }
+
+    /**
+     * @return distance of j-th entry, in scan order
+     */
+    public double value(int kind, int row, int j) {
+        return values[offsets[KINDS * row + kind] + j];
+    }
+
+    /**
+     * @return range index of the kind and row copied out of the arena, null if it is empty
+     */
+    public RangeIndex get(int kind, int row) {
+        int length = size(kind, row);
+        if (length == 0) {
+            return null;
+        }
+        int from = offsets[KINDS * row + kind];
+        return new RangeIndex(Arrays.copyOfRange(indexes, from, from + length),
+            Arrays.copyOfRange(values, from, from + length));
+    }
+
+    /**
+     * Appends range indexes of a row, rows skipped since the previous call have empty range
+     * indexes. Equivalent to {@link RangeIndexMatrixProfile#minSoFar} from the row to the start,
+     * from the row to the end, from the start to the end and from the end to the second
+     * subsequence, range index from the first row to the start is always empty.
+     *
+     * @param dist   distance profile of the row
+     * @param length number of distances in the profile
+     * @param row    row index, greater than of the previous call
+     */
+    public void add(double[] dist, int length, int row) {
+        int n = length;
+        if (fromStart.length < n) {
+            fromStart = new int[n];
+            fromRow = new int[n];
+            toStart = new int[n];
+            fromEnd = new int[n];
+        }
+        // NaN and infinite distances never become minimums
+        int fromStartSize = 0;
+        int fromRowSize = 0;
+        double minFromStart = Double.POSITIVE_INFINITY;
+        double minFromRow = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < row; k++) {
+            var d = dist[k];
+            if (d < minFromStart) {
+                minFromStart = d;
+                fromStart[fromStartSize++] = k;
+            }
+        }
+        for (int k = row; k < n; k++) {
+            var d = dist[k];
+            if (d < minFromStart) {
+                minFromStart = d;
+                fromStart[fromStartSize++] = k;
+            }
+            if (d < minFromRow) {
+                minFromRow = d;
+                fromRow[fromRowSize++] = k;
+            }
+        }
+
+        int fromEndSize = 0;
+        int toStartSize = 0;
+        double minFromEnd = Double.POSITIVE_INFINITY;
+        double minToStart = Double.POSITIVE_INFINITY;
+        for (int k = n - 1; k > row; k--) {
+            var d = dist[k];
+            if (d < minFromEnd) {
+                minFromEnd = d;
+                fromEnd[fromEndSize++] = k;
+            }
+        }
+        if (row > 0) {
+            for (int k = row; k >= 0; k--) {
+                var d = dist[k];
+                if (k > 0 && d < minFromEnd) {
+                    minFromEnd = d;
+                    fromEnd[fromEndSize++] = k;
+                }
+                if (d < minToStart) {
+                    minToStart = d;
+                    toStart[toStartSize++] = k;
+                }
+            }
+        }
+
+        close(KINDS * row + SUB_TO_LEFT);
+        for (int j = 0; j < toStartSize; j++) {
+            append(toStart[j], dist);
+        }
+        close(KINDS * row + SUB_TO_RIGHT);
+        for (int j = 0; j < fromRowSize; j++) {
+            append(fromRow[j], dist);
+        }
+        close(KINDS * row + LEFT_TO_RIGHT);
+        for (int j = 0; j < fromStartSize; j++) {
+            append(fromStart[j], dist);
+        }
+        close(KINDS * row + RIGHT_TO_LEFT);
+        for (int j = 0; j < fromEndSize; j++) {
+            append(fromEnd[j], dist);
+        }
+        close(KINDS * row + KINDS);
+    }
+
+    /**
+     * Finalizes offsets of the remaining rows and trims the arena.
+     */
+    public RangeIndexArena finish() {
+        close(offsets.length - 1);
+        indexes = Arrays.copyOf(indexes, size);
+        values = Arrays.copyOf(values, size);
+        fromStart = fromRow = toStart = fromEnd = new int[0];
+        return this;
+    }
+
+    /**
+     * Ends all segments before the given one, entries appended next belong to it.
+     */
+    private void close(int segment) {
+        while (segments < segment) {
+            offsets[++segments] = size;
+        }
+    }
+
+    private void append(int index, double[] dist) {
+        if (size == indexes.length) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, size * 2L);
+            if (capacity == size) {
+                throw new IllegalStateException("Range index arena is full");
+            }
+            indexes = Arrays.copyOf(indexes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        indexes[size] = index;
+        values[size] = dist[index];
+        size++;
+    }
+}
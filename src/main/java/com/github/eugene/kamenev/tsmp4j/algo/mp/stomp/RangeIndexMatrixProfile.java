@@ -29,12 +29,29 @@ public record RangeIndexMatrixProfile(
     double[] leftProfile,
     int[] rightIndexes,
     int[] leftIndexes,
-    RangeIndex[] subToLeft,
-    RangeIndex[] subToRight,
-    RangeIndex[] leftToRight,
-    RangeIndex[] rightToLeft
+    RangeIndexArena rangeIndexes
 ) implements MatrixProfile {
 
+    public RangeIndex subToLeft(int i) {
+        return rangeIndex(RangeIndexArena.SUB_TO_LEFT, i);
+    }
+
+    public RangeIndex subToRight(int i) {
+        return rangeIndex(RangeIndexArena.SUB_TO_RIGHT, i);
+    }
+
+    public RangeIndex leftToRight(int i) {
+        return rangeIndex(RangeIndexArena.LEFT_TO_RIGHT, i);
+    }
+
+    public RangeIndex rightToLeft(int i) {
+        return rangeIndex(RangeIndexArena.RIGHT_TO_LEFT, i);
+    }
+
+    private RangeIndex rangeIndex(int kind, int i) {
+        return rangeIndexes == null ? null : rangeIndexes.get(kind, i);
+    }
+
     public static RangeIndex minSoFar(double[] dist, int startInd, int endInd) {
         int step = (endInd < startInd) ? -1 : 1; // Correct direction
         int length = dist.length;
@@ -17,13 +17,11 @@
 
 package com.github.eugene.kamenev.tsmp4j.algo.mp.stomp;
 
-import static com.github.eugene.kamenev.tsmp4j.algo.mp.stomp.RangeIndexMatrixProfile.minSoFar;
-
 import com.github.eugene.kamenev.tsmp4j.algo.mp.BaseMatrixProfileAlgorithm;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.DistanceProfileFunction;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.DistanceProfileFunction.DistanceProfileQuery;
+import com.github.eugene.kamenev.tsmp4j.algo.mp.FloatMatrixProfile;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.mass.MASS2;
-import com.github.eugene.kamenev.tsmp4j.algo.mp.stomp.RangeIndexMatrixProfile.RangeIndex;
 import com.github.eugene.kamenev.tsmp4j.stats.BaseRollingWindowStatistics;
 import com.github.eugene.kamenev.tsmp4j.stats.BaseWindowStatistic;
 import com.github.eugene.kamenev.tsmp4j.stats.RollingWindowStatistics;
@@ -40,6 +38,11 @@ import java.util.Arrays;
  */
 public class STOMP extends BaseMatrixProfileAlgorithm<BaseWindowStatistic, RangeIndexMatrixProfile> {
 
+    /**
+     * Number of rows after which single precision dot products are recomputed with FFT.
+     */
+    public static final int FLOAT_RESEED = 1024;
+
     private final boolean computeRangeIndex;
 
     public STOMP(RollingWindowStatistics<BaseWindowStatistic> rollingWindowStatistics,
@@ -91,6 +94,189 @@ public class STOMP extends BaseMatrixProfileAlgorithm<BaseWindowStatistic, Range
         return null;
     }
 
+    /**
+     * Single precision self-join, range indexes are not computed. See {@link #stompFloat}.
+     */
+    public FloatMatrixProfile getFloat() {
+        if (this.isReady()) {
+            return stompFloat(this.rollingStatistics(), null, this.exclusionZone,
+                this.exclusionZoneSize);
+        }
+        return null;
+    }
+
+    /**
+     * Single precision AB-join. See {@link #stompFloat}.
+     */
+    public FloatMatrixProfile getFloat(RollingWindowStatistics<BaseWindowStatistic> query) {
+        if (this.isReady()) {
+            return stompFloat(this.rollingStatistics(), query, this.exclusionZone,
+                this.exclusionZoneSize);
+        }
+        return null;
+    }
+
+    /**
+     * STOMP computed and stored in single precision. Both series are centred by their mean before
+     * narrowing to float, which keeps sliding dot products small, first row and column of dot
+     * products are computed with FFT in double precision, rows are recomputed with FFT every
+     * {@link #FLOAT_RESEED} queries to bound float rounding error. Centred double precision copy
+     * of the reference series is built once per call and reused by every reseed, reseeded query
+     * subsequence is copied into a buffer of window size.
+     */
+    public static <S extends WindowStatistic> FloatMatrixProfile stompFloat(
+        RollingWindowStatistics<S> ts, RollingWindowStatistics<S> query, double exclusionZone,
+        int exclusionZoneSize) {
+        int windowSize = ts.windowSize();
+        boolean isJoin = query != null;
+        if (!isJoin) {
+            query = ts;
+        } else {
+            exclusionZone = 0;
+            exclusionZoneSize = 0;
+        }
+        int exZone = exclusionZoneSize;
+        int dataSize = ts.dataSize();
+        int querySize = query.dataSize();
+        int mpSize = dataSize - windowSize + 1;
+        int numQueries = querySize - windowSize + 1;
+        if (querySize > dataSize) {
+            throw new IllegalArgumentException(
+                "Query must be smaller or the same size as reference data.");
+        }
+        if (windowSize < 4) {
+            throw new IllegalArgumentException("Window size must be at least 4.");
+        }
+
+        var tCenter = center(ts);
+        var qCenter = isJoin ? center(query) : tCenter;
+        var tMean = centredMeans(ts, tCenter);
+        var qMean = isJoin ? centredMeans(query, qCenter) : tMean;
+        var tStd = stdDevs(ts);
+        var qStd = isJoin ? stdDevs(query) : tStd;
+        var tInvalid = invalid(ts);
+        var qInvalid = isJoin ? invalid(query) : tInvalid;
+        float[] tx = narrowCentred(ts, tCenter);
+        float[] qx = isJoin ? narrowCentred(query, qCenter) : tx;
+
+        float[] matrixProfile = new float[mpSize];
+        int[] profileIndex = new int[mpSize];
+        float[] leftMatrixProfile = null, rightMatrixProfile = null;
+        int[] leftProfileIndex = null, rightProfileIndex = null;
+        Arrays.fill(matrixProfile, Float.POSITIVE_INFINITY);
+        Arrays.fill(profileIndex, -1);
+        if (!isJoin) {
+            leftMatrixProfile = matrixProfile.clone();
+            rightMatrixProfile = matrixProfile.clone();
+            leftProfileIndex = profileIndex.clone();
+            rightProfileIndex = profileIndex.clone();
+        }
+
+        double[] t = centred(ts, tCenter);
+        double[] window = new double[windowSize];
+        float[] firstColumn = FloatMatrixProfile.narrow(Util.slidingDotProducts(
+            t, 0, windowSize, isJoin ? centred(query, qCenter) : t));
+        float[] products = null;
+        float[] distanceProfile = new float[mpSize];
+
+        for (int i = 0; i < numQueries; i++) {
+            if (i % FLOAT_RESEED == 0) {
+                for (int k = 0; k < windowSize; k++) {
+                    window[k] = query.x(i + k) - qCenter;
+                }
+                products = FloatMatrixProfile.narrow(
+                    Util.slidingDotProducts(window, 0, windowSize, t));
+            } else {
+                float dropValue = qx[i - 1];
+                float addValue = qx[i + windowSize - 1];
+                for (int j = mpSize - 1; j > 0; j--) {
+                    products[j] = products[j - 1] - tx[j - 1] * dropValue
+                        + tx[j + windowSize - 1] * addValue;
+                }
+                products[0] = firstColumn[i];
+            }
+
+            for (int k = 0; k < mpSize; k++) {
+                if ((exZone > 0 && Math.abs(k - i) <= exZone) || tStd[k] < Util.EPS
+                    || tInvalid[k] || qInvalid[i]) {
+                    distanceProfile[k] = Float.POSITIVE_INFINITY;
+                } else {
+                    var a = products[k] - windowSize * tMean[k] * qMean[i];
+                    var b = tStd[k] * qStd[i];
+                    distanceProfile[k] = (float) Math.sqrt(2 * Math.max(0, windowSize - a / b));
+                }
+
+                if (distanceProfile[k] < matrixProfile[k]) {
+                    matrixProfile[k] = distanceProfile[k];
+                    profileIndex[k] = i;
+                }
+
+                if (!isJoin) {
+                    if (k >= i && distanceProfile[k] < leftMatrixProfile[k]) {
+                        leftMatrixProfile[k] = distanceProfile[k];
+                        leftProfileIndex[k] = i;
+                    }
+                    if (k <= i && distanceProfile[k] < rightMatrixProfile[k]) {
+                        rightMatrixProfile[k] = distanceProfile[k];
+                        rightProfileIndex[k] = i;
+                    }
+                }
+            }
+        }
+
+        return new FloatMatrixProfile(windowSize, exclusionZone, matrixProfile, profileIndex,
+            rightMatrixProfile, leftMatrixProfile, rightProfileIndex, leftProfileIndex);
+    }
+
+    private static double center(RollingWindowStatistics<?> stats) {
+        int n = stats.dataSize();
+        double center = 0;
+        for (int i = 0; i < n; i++) {
+            center += stats.x(i);
+        }
+        return center / n;
+    }
+
+    private static double[] centred(RollingWindowStatistics<?> stats, double center) {
+        double[] x = new double[stats.dataSize()];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = stats.x(i) - center;
+        }
+        return x;
+    }
+
+    private static float[] narrowCentred(RollingWindowStatistics<?> stats, double center) {
+        float[] x = new float[stats.dataSize()];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = (float) (stats.x(i) - center);
+        }
+        return x;
+    }
+
+    private static float[] centredMeans(RollingWindowStatistics<?> stats, double center) {
+        var mean = new float[stats.dataSize() - stats.windowSize() + 1];
+        for (int i = 0; i < mean.length; i++) {
+            mean[i] = (float) (stats.mean(i) - center);
+        }
+        return mean;
+    }
+
+    private static float[] stdDevs(RollingWindowStatistics<?> stats) {
+        var std = new float[stats.dataSize() - stats.windowSize() + 1];
+        for (int i = 0; i < std.length; i++) {
+            std[i] = (float) stats.stdDev(i);
+        }
+        return std;
+    }
+
+    private static boolean[] invalid(RollingWindowStatistics<?> stats) {
+        var skip = new boolean[stats.dataSize() - stats.windowSize() + 1];
+        for (int i = 0; i < skip.length; i++) {
+            skip[i] = stats.skip(i);
+        }
+        return skip;
+    }
+
     public static <S extends WindowStatistic> RangeIndexMatrixProfile stomp(RollingWindowStatistics<S> ts,
         RollingWindowStatistics<S> query, double exclusionZone, int exclusionZoneSize, boolean computeRangeIndex,
         DistanceProfileFunction<S> distFunc) {
@@ -106,7 +292,6 @@ public class STOMP extends BaseMatrixProfileAlgorithm<BaseWindowStatistic, Range
         int dataSize = ts.dataSize();
         int querySize = query.dataSize();
         int mpSize = dataSize - windowSize + 1;
-        int mpBound = mpSize - 1;
         int numQueries = querySize - windowSize + 1;
         if (querySize > dataSize) {
             throw new IllegalArgumentException(
@@ -132,13 +317,7 @@ public class STOMP extends BaseMatrixProfileAlgorithm<BaseWindowStatistic, Range
             rightProfileIndex = new int[matrixProfile.length];
 
         }
-        RangeIndex[] subToLeft = null, subToRight = null, leftToRight = null, rightToLeft = null;
-        if (computeRangeIndex) {
-            subToLeft = new RangeIndex[mpSize];
-            subToRight = new RangeIndex[mpSize];
-            leftToRight = new RangeIndex[mpSize];
-            rightToLeft = new RangeIndex[mpSize];
-        }
+        RangeIndexArena rangeIndexes = computeRangeIndex ? new RangeIndexArena(numQueries) : null;
 
         for (int i = 0; i < mpSize; i++) {
             matrixProfile[i] = Double.POSITIVE_INFINITY;
@@ -203,16 +382,7 @@ public class STOMP extends BaseMatrixProfileAlgorithm<BaseWindowStatistic, Range
                 if ((exZone > 0 && Math.abs(k - i) <= exZone) || ts.stdDev(k) < Util.EPS || ts.skip(k) || ts.skip(i)) {
                     distanceProfile[k] = Double.POSITIVE_INFINITY;
                 } else if (computeRangeIndex && k - i >= exZone && !rangeIndexHandled) {
-                    if (i == 0) {
-                        subToRight[0] = minSoFar(distanceProfile, 0, mpBound);
-                        leftToRight[0] = minSoFar(distanceProfile, 0, mpBound);
-                        rightToLeft[0] = minSoFar(distanceProfile, mpBound, 1);
-                    } else {
-                        subToLeft[i] = minSoFar(distanceProfile, i, 0);
-                        subToRight[i] = minSoFar(distanceProfile, i, mpBound);
-                        leftToRight[i] = minSoFar(distanceProfile, 0, mpBound);
-                        rightToLeft[i] = minSoFar(distanceProfile, mpBound, 1);
-                    }
+                    rangeIndexes.add(distanceProfile, mpSize, i);
                     rangeIndexHandled = true;
                 }
                 // normal matrixProfile
@@ -238,7 +408,8 @@ public class STOMP extends BaseMatrixProfileAlgorithm<BaseWindowStatistic, Range
         }
 
         return new RangeIndexMatrixProfile(windowSize, exclusionZone, matrixProfile, profileIndex,
-            rightMatrixProfile, leftMatrixProfile, rightProfileIndex, leftProfileIndex, subToLeft, subToRight, leftToRight, rightToLeft);
+            rightMatrixProfile, leftMatrixProfile, rightProfileIndex, leftProfileIndex,
+            rangeIndexes == null ? null : rangeIndexes.finish());
     }
 
     public static <S extends WindowStatistic> RangeIndexMatrixProfile stomp(RollingWindowStatistics<S> ts,
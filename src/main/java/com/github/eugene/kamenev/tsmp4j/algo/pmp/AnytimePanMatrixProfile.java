@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.pmp;
+
+/**
+ * Pan matrix profile of a time budgeted SKIMP computation. Rows of window sizes which were not
+ * evaluated are interpolated from the nearest evaluated smaller window size.
+ *
+ * @param panMatrixProfile pan matrix profile, interpolated where not evaluated
+ * @param evaluated        true for window sizes with computed matrix profile
+ * @param nearestEvaluated index of evaluated window size used for every window size
+ * @param elapsedNanos     computation time
+ */
+public record AnytimePanMatrixProfile(PanMatrixProfile panMatrixProfile, boolean[] evaluated,
+                                      int[] nearestEvaluated, long elapsedNanos) {
+
+    public int evaluatedCount() {
+        int count = 0;
+        for (var e : evaluated) {
+            if (e) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isComplete() {
+        return evaluatedCount() == evaluated.length;
+    }
+}
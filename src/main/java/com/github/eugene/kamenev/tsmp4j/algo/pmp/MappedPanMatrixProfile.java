@@ -0,0 +1,402 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.pmp;
+
+import com.github.eugene.kamenev.tsmp4j.algo.mp.MatrixProfile;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Pan matrix profile stored in a memory-mapped file, so profiles of many window sizes over long
+ * series do not have to fit into heap. Distances are stored as float64 or float32, indexes are
+ * stored as zigzag varint encoded deltas against their own position, which are small for
+ * neighbouring motifs, in blocks with an offset table, so a single index is decoded without
+ * reading the whole row. Rows may be written in any order, e.g. by SKIMP as they complete, and
+ * read lazily by row or by column.
+ * <p>
+ * File layout: header, row directory (index data offset and length per row), distance rows at
+ * fixed offsets, index rows appended in order of writing.
+ */
+public class MappedPanMatrixProfile implements AutoCloseable {
+
+    private static final int MAGIC = 0x504d5046;
+
+    private static final int HEADER_SIZE = 24;
+
+    private static final int DIRECTORY_ENTRY_SIZE = 12;
+
+    /**
+     * Number of indexes in an encoded block.
+     */
+    public static final int BLOCK_SIZE = 256;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final FileChannel channel;
+
+    private final int dataSize;
+
+    private final int[] windows;
+
+    private final boolean singlePrecision;
+
+    private final long[] distanceOffsets;
+
+    private final long[] indexOffsets;
+
+    private final int[] indexLengths;
+
+    private final MappedByteBuffer[] distanceMaps;
+
+    private final MappedByteBuffer[] indexMaps;
+
+    private long end;
+
+    /**
+     * Creates new storage, existing file is truncated.
+     *
+     * @param file            file path
+     * @param dataSize        length of the series
+     * @param windows         window sizes, one row per window size
+     * @param singlePrecision store distances as float32
+     */
+    public MappedPanMatrixProfile(Path file, int dataSize, int[] windows, boolean singlePrecision)
+        throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), dataSize,
+            windows.clone(), singlePrecision);
+        var header = ByteBuffer.allocate(HEADER_SIZE + 4 * windows.length);
+        header.putInt(MAGIC).putInt(dataSize).putInt(windows.length)
+            .putInt(singlePrecision ? 1 : 0).putInt(BLOCK_SIZE).putInt(0);
+        for (var w : windows) {
+            header.putInt(w);
+        }
+        write(header.flip(), 0);
+        write(ByteBuffer.allocate(DIRECTORY_ENTRY_SIZE * windows.length), directoryOffset(0));
+    }
+
+    private MappedPanMatrixProfile(FileChannel channel, int dataSize, int[] windows,
+        boolean singlePrecision) {
+        this.channel = channel;
+        this.dataSize = dataSize;
+        this.windows = windows;
+        this.singlePrecision = singlePrecision;
+        this.distanceOffsets = new long[windows.length];
+        this.indexOffsets = new long[windows.length];
+        this.indexLengths = new int[windows.length];
+        this.distanceMaps = new MappedByteBuffer[windows.length];
+        this.indexMaps = new MappedByteBuffer[windows.length];
+        long offset = directoryOffset(windows.length);
+        for (int i = 0; i < windows.length; i++) {
+            distanceOffsets[i] = offset;
+            offset += (long) rowLength(i) * valueSize();
+        }
+        this.end = offset;
+    }
+
+    /**
+     * Opens storage written before.
+     */
+    public static MappedPanMatrixProfile open(Path file) throws IOException {
+        var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            var header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a pan matrix profile file: " + file);
+            }
+            int dataSize = header.getInt();
+            int rows = header.getInt();
+            boolean singlePrecision = header.getInt() == 1;
+            if (header.getInt() != BLOCK_SIZE) {
+                throw new IOException("Unsupported block size in " + file);
+            }
+            var windowsBuffer = ByteBuffer.allocate(4 * rows);
+            channel.read(windowsBuffer, HEADER_SIZE);
+            int[] windows = new int[rows];
+            windowsBuffer.flip().asIntBuffer().get(windows);
+            var storage = new MappedPanMatrixProfile(channel, dataSize, windows, singlePrecision);
+            var directory = ByteBuffer.allocate(DIRECTORY_ENTRY_SIZE * rows);
+            channel.read(directory, storage.directoryOffset(0));
+            directory.flip();
+            for (int i = 0; i < rows; i++) {
+                storage.indexOffsets[i] = directory.getLong();
+                storage.indexLengths[i] = directory.getInt();
+                if (storage.indexOffsets[i] > 0) {
+                    storage.end = Math.max(storage.end,
+                        storage.indexOffsets[i] + storage.indexLengths[i]);
+                }
+            }
+            return storage;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int rowCount() {
+        return windows.length;
+    }
+
+    public int dataSize() {
+        return dataSize;
+    }
+
+    public int windowSize(int row) {
+        return windows[row];
+    }
+
+    public int rowLength(int row) {
+        return dataSize - windows[row] + 1;
+    }
+
+    public boolean isSinglePrecision() {
+        return singlePrecision;
+    }
+
+    public synchronized boolean hasRow(int row) {
+        return indexOffsets[row] > 0;
+    }
+
+    /**
+     * @return listener writing every matrix profile to the row of its window size index
+     */
+    public ObjIntConsumer<MatrixProfile> writer() {
+        return (mp, row) -> writeRow(row, mp.profile(), mp.indexes());
+    }
+
+    /**
+     * Writes matrix profile of a window size, rows may be written in any order, from any thread.
+     */
+    public synchronized void writeRow(int row, double[] profile, int[] indexes) {
+        int len = rowLength(row);
+        if (profile.length != len || indexes.length != len) {
+            throw new IllegalArgumentException(
+                "Row " + row + " must have " + len + " values, got " + profile.length);
+        }
+        var buffer = ByteBuffer.allocate(CHUNK_SIZE * valueSize());
+        long position = distanceOffsets[row];
+        for (int from = 0; from < len; from += CHUNK_SIZE) {
+            int to = Math.min(len, from + CHUNK_SIZE);
+            buffer.clear();
+            for (int j = from; j < to; j++) {
+                if (singlePrecision) {
+                    buffer.putFloat((float) profile[j]);
+                } else {
+                    buffer.putDouble(profile[j]);
+                }
+            }
+            position += write(buffer.flip(), position);
+        }
+
+        var encoded = encode(indexes);
+        long offset = indexOffsets[row] > 0 && indexLengths[row] >= encoded.remaining()
+            ? indexOffsets[row] : end;
+        write(encoded, offset);
+        var entry = ByteBuffer.allocate(DIRECTORY_ENTRY_SIZE);
+        entry.putLong(offset).putInt(encoded.limit());
+        write(entry.flip(), directoryOffset(row));
+        end = Math.max(end, offset + encoded.limit());
+        indexOffsets[row] = offset;
+        indexLengths[row] = encoded.limit();
+        distanceMaps[row] = null;
+        indexMaps[row] = null;
+    }
+
+    public double distance(int row, int j) {
+        var map = distanceMap(row);
+        return singlePrecision ? map.getFloat(j * 4) : map.getDouble(j * 8);
+    }
+
+    public int index(int row, int j) {
+        var map = indexMap(row);
+        int block = j / BLOCK_SIZE;
+        int position = map.getInt(4 + 4 * block);
+        int index = 0;
+        for (int k = block * BLOCK_SIZE; k <= j; k++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = map.get(position++);
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            index = k + ((value >>> 1) ^ -(value & 1));
+        }
+        return index;
+    }
+
+    public double[] profile(int row) {
+        var map = distanceMap(row);
+        var result = new double[rowLength(row)];
+        for (int j = 0; j < result.length; j++) {
+            result[j] = singlePrecision ? map.getFloat(j * 4) : map.getDouble(j * 8);
+        }
+        return result;
+    }
+
+    public int[] indexes(int row) {
+        var map = indexMap(row);
+        var result = new int[rowLength(row)];
+        int position = map.getInt(4);
+        for (int j = 0; j < result.length; j++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = map.get(position++);
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            result[j] = j + ((value >>> 1) ^ -(value & 1));
+        }
+        return result;
+    }
+
+    /**
+     * @param j subsequence position
+     * @return distances of subsequence at position j for every window size, NaN where row is not
+     * written or is shorter than j
+     */
+    public double[] column(int j) {
+        var result = new double[windows.length];
+        for (int row = 0; row < windows.length; row++) {
+            result[row] = hasRow(row) && j < rowLength(row) ? distance(row, j) : Double.NaN;
+        }
+        return result;
+    }
+
+    /**
+     * @param j subsequence position
+     * @return nearest neighbour indexes of subsequence at position j for every window size, -1
+     * where row is not written or is shorter than j
+     */
+    public int[] indexColumn(int j) {
+        var result = new int[windows.length];
+        for (int row = 0; row < windows.length; row++) {
+            result[row] = hasRow(row) && j < rowLength(row) ? index(row, j) : -1;
+        }
+        return result;
+    }
+
+    /**
+     * Reads all written rows into heap, rows not written are null.
+     */
+    public PanMatrixProfile toPanMatrixProfile() {
+        var profile = new double[windows.length][];
+        var indexes = new int[windows.length][];
+        for (int row = 0; row < windows.length; row++) {
+            if (hasRow(row)) {
+                profile[row] = profile(row);
+                indexes[row] = indexes(row);
+            }
+        }
+        return new PanMatrixProfile(profile, indexes);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        Arrays.fill(distanceMaps, null);
+        Arrays.fill(indexMaps, null);
+        channel.close();
+    }
+
+    private synchronized MappedByteBuffer distanceMap(int row) {
+        checkRow(row);
+        if (distanceMaps[row] == null) {
+            distanceMaps[row] = map(distanceOffsets[row], (long) rowLength(row) * valueSize());
+        }
+        return distanceMaps[row];
+    }
+
+    private synchronized MappedByteBuffer indexMap(int row) {
+        checkRow(row);
+        if (indexMaps[row] == null) {
+            indexMaps[row] = map(indexOffsets[row], indexLengths[row]);
+        }
+        return indexMaps[row];
+    }
+
+    private void checkRow(int row) {
+        if (indexOffsets[row] == 0) {
+            throw new IllegalStateException("Row " + row + " is not written");
+        }
+    }
+
+    /**
+     * Encodes indexes as: block count, block offsets, zigzag varint deltas.
+     */
+    private static ByteBuffer encode(int[] indexes) {
+        int blocks = (indexes.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int headerSize = 4 + 4 * blocks;
+        var buffer = ByteBuffer.allocate(headerSize + 5 * indexes.length);
+        buffer.putInt(blocks);
+        buffer.position(headerSize);
+        for (int j = 0; j < indexes.length; j++) {
+            if (j % BLOCK_SIZE == 0) {
+                buffer.putInt(4 + 4 * (j / BLOCK_SIZE), buffer.position());
+            }
+            int delta = indexes[j] - j;
+            int value = (delta << 1) ^ (delta >> 31);
+            while ((value & ~0x7f) != 0) {
+                buffer.put((byte) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+        return buffer.flip();
+    }
+
+    private int valueSize() {
+        return singlePrecision ? 4 : 8;
+    }
+
+    private long directoryOffset(int row) {
+        return HEADER_SIZE + 4L * windows.length + (long) DIRECTORY_ENTRY_SIZE * row;
+    }
+
+    private MappedByteBuffer map(long position, long size) {
+        try {
+            return channel.map(MapMode.READ_ONLY, position, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int write(ByteBuffer buffer, long position) {
+        try {
+            int written = 0;
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer, position + written);
+            }
+            return written;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -20,10 +20,19 @@ package com.github.eugene.kamenev.tsmp4j.algo.pmp;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.MatrixProfile;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.MatrixProfileAlgorithm;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPX;
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPXColumns;
+import com.github.eugene.kamenev.tsmp4j.stats.PrefixSumStatistics;
 import com.github.eugene.kamenev.tsmp4j.stats.WindowStatistic;
+import com.github.eugene.kamenev.tsmp4j.utils.Buffer;
+import com.github.eugene.kamenev.tsmp4j.utils.Parallel;
+import com.github.eugene.kamenev.tsmp4j.utils.Util;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Scalable KInetoscopic Matrix Profile (SKIMP) algorithm. SKIMP is a scalable algorithm for
@@ -38,25 +47,65 @@ public class SKIMP<S extends WindowStatistic> implements PanMatrixProfileAlgorit
 
     private final int[] splitIDX;
 
-    @SuppressWarnings("unchecked")
-    public SKIMP(int numInstances, boolean crossCorrelation, int... windows) {
+    private final ExecutorService executor;
+
+    /**
+     * Raw data shared by all window sizes when MPX is used, MPX columns of a window size are
+     * derived from its prefix sum statistics only for the time of its computation.
+     */
+    private final Buffer.DoubleBuffer data;
+
+    private final boolean crossCorrelation;
+
+    public SKIMP(int numInstances, boolean crossCorrelation, ExecutorService executor,
+        int... windows) {
         this.splitIDX = binarySplit(windows.length);
         this.windows = windows;
-        this.algos = new MatrixProfileAlgorithm[windows.length];
-        for (int i = 0; i < windows.length; i++) {
-            algos[i] = new MPX(windows[i], numInstances, crossCorrelation, 0.5d);
-        }
+        this.executor = executor;
+        this.algos = null;
+        this.data = new Buffer.DoubleBuffer(numInstances);
+        this.crossCorrelation = crossCorrelation;
+    }
+
+    public SKIMP(int numInstances, boolean crossCorrelation, int... windows) {
+        this(numInstances, crossCorrelation, null, windows);
     }
 
+    /**
+     * @param crossCorrelation whether the algorithms produce cross correlation instead of
+     *                         distances, interpolated rows are not rescaled then
+     */
     public <M extends MatrixProfile> SKIMP(int[] windows,
-        MatrixProfileAlgorithm<S, M>[] algos) {
+        MatrixProfileAlgorithm<S, M>[] algos, boolean crossCorrelation, ExecutorService executor) {
         this.splitIDX = binarySplit(windows.length);
         this.windows = windows;
         this.algos = algos;
+        this.executor = executor;
+        this.data = null;
+        this.crossCorrelation = crossCorrelation;
+    }
+
+    public <M extends MatrixProfile> SKIMP(int[] windows,
+        MatrixProfileAlgorithm<S, M>[] algos, ExecutorService executor) {
+        this(windows, algos, false, executor);
+    }
+
+    public <M extends MatrixProfile> SKIMP(int[] windows,
+        MatrixProfileAlgorithm<S, M>[] algos, boolean crossCorrelation) {
+        this(windows, algos, crossCorrelation, null);
+    }
+
+    public <M extends MatrixProfile> SKIMP(int[] windows,
+        MatrixProfileAlgorithm<S, M>[] algos) {
+        this(windows, algos, false, null);
     }
 
     @Override
     public void update(double value) {
+        if (data != null) {
+            data.addToEnd(value);
+            return;
+        }
         for (var algo : algos) {
             algo.update(value);
         }
@@ -64,18 +113,89 @@ public class SKIMP<S extends WindowStatistic> implements PanMatrixProfileAlgorit
 
     @Override
     public PanMatrixProfile get() {
-        if (!algos[0].isReady()) {
+        return get(null);
+    }
+
+    /**
+     * Computes matrix profiles of all window sizes in binary split order. With an executor, window
+     * sizes are computed concurrently, tasks are submitted in binary split order, so the coarse
+     * coverage of window sizes completes first.
+     *
+     * @param listener receives matrix profile and its window size index as soon as it is
+     *                 computed, always in the calling thread, may be null
+     * @return pan matrix profile
+     */
+    public PanMatrixProfile get(ObjIntConsumer<MatrixProfile> listener) {
+        var result = compute(listener, Long.MAX_VALUE, true);
+        return result != null ? result.panMatrixProfile() : null;
+    }
+
+    /**
+     * Computes matrix profiles of all window sizes and writes every row into the storage as soon
+     * as it is computed, rows are not kept in heap.
+     *
+     * @param storage storage with a row for every window size
+     * @return false if algorithm is not ready yet
+     */
+    public boolean writeTo(MappedPanMatrixProfile storage) {
+        if (storage.rowCount() != windows.length) {
+            throw new IllegalArgumentException("Storage must have a row for every window size");
+        }
+        return compute(storage.writer(), Long.MAX_VALUE, false) != null;
+    }
+
+    public AnytimePanMatrixProfile getAnytime(Duration timeBudget) {
+        return getAnytime(timeBudget, null);
+    }
+
+    /**
+     * Computes matrix profiles of window sizes in binary split order until time budget is spent.
+     * The first window size is always evaluated, window sizes already started when budget ends
+     * are completed. Rows of skipped window sizes are copied from the nearest smaller evaluated
+     * window size, truncated to their length, and, unless cross correlation is returned, scaled
+     * by square root of window sizes ratio.
+     *
+     * @param timeBudget time budget
+     * @param listener   receives matrix profile and its window size index as soon as it is
+     *                   computed, always in the calling thread, may be null
+     * @return pan matrix profile with evaluated window sizes mask
+     */
+    public AnytimePanMatrixProfile getAnytime(Duration timeBudget,
+        ObjIntConsumer<MatrixProfile> listener) {
+        return compute(listener, timeBudget.toNanos(), true);
+    }
+
+    private AnytimePanMatrixProfile compute(ObjIntConsumer<MatrixProfile> listener,
+        long budgetNanos, boolean retain) {
+        if (data != null ? !data.isFull() : !algos[0].isReady()) {
             return null;
         }
+        long start = System.nanoTime();
         double[][] pmp = new double[windows.length][];
         int[][] pmpi = new int[windows.length][];
         int[] idx = new int[windows.length];
+        boolean[] evaluated = new boolean[windows.length];
+        var tasks = new ArrayList<Callable<WindowProfile>>(splitIDX.length);
+        var stats = data != null ? new PrefixSumStatistics(data.copy()) : null;
         for (int splitIDXVal : splitIDX) {
-            var mp = algos[splitIDXVal].get();
+            tasks.add(() -> {
+                if (splitIDXVal != splitIDX[0] && System.nanoTime() - start > budgetNanos) {
+                    return null;
+                }
+                return new WindowProfile(splitIDXVal, stats != null
+                    ? selfJoin(stats, windows[splitIDXVal]) : algos[splitIDXVal].get());
+            });
+        }
+        Parallel.forEachCompleted(executor, tasks, result -> {
+            if (result == null) {
+                return;
+            }
+            int splitIDXVal = result.index();
+            var mp = result.matrixProfile();
             var dist = mp.profile();
             var idxs = mp.indexes();
 
-            for (int j = 0; j < dist.length; j++) {
+            for (int j = 0; retain && j < dist.length; j++) {
                 if (pmp[splitIDXVal] == null) {
                     pmp[splitIDXVal] = new double[dist.length];
                     pmpi[splitIDXVal] = new int[idxs.length];
@@ -83,13 +203,38 @@ public class SKIMP<S extends WindowStatistic> implements PanMatrixProfileAlgorit
                 pmp[splitIDXVal][j] = dist[j];
                 pmpi[splitIDXVal][j] = idxs[j];
             }
+            evaluated[splitIDXVal] = true;
             int j = splitIDXVal;
             while (j < splitIDX.length && idx[j] != j) {
                 idx[j] = splitIDXVal;
                 j++;
             }
+            if (listener != null) {
+                listener.accept(mp, splitIDXVal);
+            }
+        });
+        for (int i = 0; retain && i < windows.length; i++) {
+            if (!evaluated[i]) {
+                interpolate(pmp, pmpi, i, idx[i]);
+            }
+        }
+        return new AnytimePanMatrixProfile(new PanMatrixProfile(pmp, pmpi), evaluated, idx,
+            System.nanoTime() - start);
+    }
+
+    private void interpolate(double[][] pmp, int[][] pmpi, int i, int source) {
+        int dataSize = pmp[source].length + windows[source] - 1;
+        int len = dataSize - windows[i] + 1;
+        int copy = Math.min(len, pmp[source].length);
+        var factor = crossCorrelation ? 1.0d : Math.sqrt((double) windows[i] / windows[source]);
+        pmp[i] = new double[len];
+        pmpi[i] = new int[len];
+        Arrays.fill(pmp[i], Double.NaN);
+        Arrays.fill(pmpi[i], -1);
+        for (int j = 0; j < copy; j++) {
+            pmp[i][j] = pmp[source][j] * factor;
+            pmpi[i][j] = Math.min(pmpi[source][j], len - 1);
         }
-        return new PanMatrixProfile(pmp, pmpi);
     }
 
     public static PanMatrixProfile of(double[] ts, int[] windows, boolean crossCorrelation) {
@@ -101,13 +246,29 @@ public class SKIMP<S extends WindowStatistic> implements PanMatrixProfileAlgorit
 
     public static <S extends WindowStatistic, M extends MatrixProfile> PanMatrixProfile of(
         double[] ts, int[] windows, MatrixProfileAlgorithm<S, M>[] algos) {
+        return of(ts, windows, algos, false);
+    }
+
+    public static <S extends WindowStatistic, M extends MatrixProfile> PanMatrixProfile of(
+        double[] ts, int[] windows, MatrixProfileAlgorithm<S, M>[] algos,
+        boolean crossCorrelation) {
 
-        var skimp = new SKIMP<>(windows, algos);
+        var skimp = new SKIMP<>(windows, algos, crossCorrelation);
         Arrays.stream(ts)
             .forEach(skimp::update);
         return skimp.get();
     }
 
+    private MatrixProfile selfJoin(PrefixSumStatistics stats, int windowSize) {
+        int exclusionZoneSize = (int) Math.floor(windowSize * 0.5d + Util.EPS);
+        return MPX.selfJoin(MPXColumns.of(stats, windowSize), exclusionZoneSize, crossCorrelation,
+            0.5d);
+    }
+
+    private record WindowProfile(int index, MatrixProfile matrixProfile) {
+
+    }
+
     private static int[] binarySplit(int n) {
         List<Integer> indexList = new ArrayList<>();
         List<int[]> intervals = new ArrayList<>();
@@ -0,0 +1,623 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.pmp;
+
+import com.github.eugene.kamenev.tsmp4j.algo.mp.MatrixProfile;
+import com.github.eugene.kamenev.tsmp4j.algo.pmp.VariableLengthMotifs.Motif;
+import com.github.eugene.kamenev.tsmp4j.stats.PrefixSumStatistics;
+import com.github.eugene.kamenev.tsmp4j.utils.Buffer;
+import com.github.eugene.kamenev.tsmp4j.utils.Util;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Supplier;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+
+/**
+ * Variable length motif discovery (VALMOD). Matrix profile is computed only for the minimum
+ * window size, every subsequence keeps a partial distance profile: dot products of its p
+ * neighbours with the smallest lower bound. Longer window sizes extend the stored dot products by
+ * one point, the lower bound of the rest of the distance profile for window size l + k is
+ * sqrt(l * (1 - q^2)) * sigma(i, l) / sigma(i, l + k), where q is the correlation at window size
+ * l. Distance profile of a subsequence is recomputed only when its bound can not rule it out from
+ * the top motifs, and its partial distance profile is rebuilt at the new window size. Rows are
+ * recomputed in ascending order of their bounds until the bound exceeds the last top motif, rows
+ * overlapping a motif that is already final are skipped. Reference:
+ * Linardi et al., Matrix Profile X: VALMOD - Scalable Discovery of Variable-Length Motifs in Data
+ * Series.
+ */
+public class VALMOD implements Supplier<VariableLengthMotifs> {
+
+    private static final int DEFAULT_PARTIAL_SIZE = 30;
+
+    private final int minLength;
+
+    private final int maxLength;
+
+    private final int topK;
+
+    private final int partialSize;
+
+    private final double exclusionZone;
+
+    private final Buffer.DoubleBuffer data;
+
+    /**
+     * @param numInstances  number of data points
+     * @param minLength     minimum window size
+     * @param maxLength     maximum window size, inclusive
+     * @param topK          number of motifs per window size
+     * @param partialSize   number of entries kept in partial distance profile of a subsequence
+     * @param exclusionZone exclusion zone relative to window size
+     */
+    public VALMOD(int numInstances, int minLength, int maxLength, int topK, int partialSize,
+        double exclusionZone) {
+        if (minLength < 2 || maxLength < minLength || maxLength > numInstances) {
+            throw new IllegalArgumentException("Invalid window size range");
+        }
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK must be positive");
+        }
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.topK = topK;
+        this.partialSize = partialSize;
+        this.exclusionZone = exclusionZone;
+        this.data = new Buffer.DoubleBuffer(numInstances);
+    }
+
+    public VALMOD(int numInstances, int minLength, int maxLength, int topK) {
+        this(numInstances, minLength, maxLength, topK, DEFAULT_PARTIAL_SIZE, 0.5d);
+    }
+
+    public void update(double value) {
+        data.addToEnd(value);
+    }
+
+    @Override
+    public VariableLengthMotifs get() {
+        if (!data.isFull()) {
+            return null;
+        }
+        return of(data.copy(), minLength, maxLength, topK, partialSize, exclusionZone);
+    }
+
+    public static VariableLengthMotifs of(double[] ts, int minLength, int maxLength, int topK) {
+        return of(ts, minLength, maxLength, topK, DEFAULT_PARTIAL_SIZE, 0.5d);
+    }
+
+    public static VariableLengthMotifs of(double[] ts, int minLength, int maxLength, int topK,
+        int partialSize, double exclusionZone) {
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK must be positive");
+        }
+        // centering keeps dot products small for series with large offset
+        var total = 0.0d;
+        var finite = 0;
+        for (var value : ts) {
+            if (Double.isFinite(value)) {
+                total += value;
+                finite++;
+            }
+        }
+        var center = finite > 0 ? total / finite : 0.0d;
+        var centered = new double[ts.length];
+        for (int i = 0; i < ts.length; i++) {
+            centered[i] = ts[i] - center;
+        }
+        var profiles = new PartialProfiles(new PrefixSumStatistics(centered), partialSize,
+            exclusionZone, ts.length - minLength + 1);
+        var x = profiles.x;
+        int n = x.length;
+
+        var windows = Util.createRange(minLength, maxLength, 1);
+        var motifs = new Motif[windows.length][];
+        var recomputed = new int[windows.length];
+
+        // minimum window size, dot products of all rows are updated along the diagonals
+        int l = minLength;
+        int rows = n - l + 1;
+        profiles.prepare(l);
+        var first = Util.slidingDotProducts(x, 0, l, x);
+        var qt = first.clone();
+        profiles.seed(0, l, qt);
+        for (int i = 1; i < rows; i++) {
+            for (int j = rows - 1; j > 0; j--) {
+                qt[j] = qt[j - 1] - x[i - 1] * x[j - 1] + x[i + l - 1] * x[j + l - 1];
+            }
+            qt[0] = first[i];
+            profiles.seed(i, l, qt);
+        }
+        motifs[0] = select(profiles.nnDistance, profiles.nnIndex, null, rows, topK,
+            exclusionZoneSize(l, exclusionZone), l);
+        recomputed[0] = rows;
+
+        for (int w = 1; w < windows.length; w++) {
+            l = windows[w];
+            rows = n - l + 1;
+            var ez = exclusionZoneSize(l, exclusionZone);
+            profiles.prepare(l);
+            var exact = new boolean[rows];
+            // min heap of rows which nearest neighbour is only bounded, keyed by -lower bound
+            var pendingKey = new double[rows];
+            var pending = new int[rows];
+            int size = 0;
+            for (int i = 0; i < rows; i++) {
+                var lower = profiles.evaluate(i, l);
+                exact[i] = lower == profiles.nnDistance[i];
+                if (!exact[i]) {
+                    pendingKey[size] = -lower;
+                    pending[size] = i;
+                    siftUp(pendingKey, pending, size++);
+                }
+            }
+            // rows are recomputed in ascending order of their lower bounds, two at a time,
+            // selection changes only when a recomputed distance does not exceed its last motif
+            var selected = select(profiles.nnDistance, profiles.nnIndex, exact, rows, topK, ez, l);
+            var threshold = threshold(selected, topK);
+            var batch = new int[2];
+            while (true) {
+                int count = 0;
+                var floor = 0.0d;
+                while (count < batch.length && size > 0 && -pendingKey[0] <= threshold) {
+                    int i = pending[0];
+                    var lower = -pendingKey[0];
+                    pendingKey[0] = pendingKey[--size];
+                    pending[0] = pending[size];
+                    siftDown(pendingKey, pending, size);
+                    if (count == 0) {
+                        floor = lower;
+                    }
+                    if (!excluded(selected, i, floor, ez)) {
+                        batch[count++] = i;
+                    }
+                }
+                if (count == 0) {
+                    break;
+                }
+                profiles.recompute(batch[0], count > 1 ? batch[1] : -1, l);
+                var changed = false;
+                for (int k = 0; k < count; k++) {
+                    exact[batch[k]] = true;
+                    changed |= profiles.nnDistance[batch[k]] <= threshold;
+                }
+                recomputed[w] += count;
+                if (changed) {
+                    selected = select(profiles.nnDistance, profiles.nnIndex, exact, rows, topK, ez,
+                        l);
+                    threshold = threshold(selected, topK);
+                }
+            }
+            motifs[w] = selected;
+        }
+        return new VariableLengthMotifs(windows, motifs, recomputed);
+    }
+
+    /**
+     * Selects top motifs from matrix profile, subsequences of a selected motif pair exclude
+     * overlapping pairs.
+     */
+    public static Motif[] topMotifs(MatrixProfile matrixProfile, int topK) {
+        var profile = matrixProfile.profile();
+        return select(profile, matrixProfile.indexes(), null, profile.length, topK,
+            exclusionZoneSize(matrixProfile.windowSize(), matrixProfile.exclusionZone()),
+            matrixProfile.windowSize());
+    }
+
+    /**
+     * Greedy selection in ascending order of distance, ties are resolved by lower index. Only the
+     * smallest distances are ordered, more of them are taken only when overlapping pairs exclude
+     * too many.
+     */
+    private static Motif[] select(double[] distances, int[] indexes, boolean[] exact, int len,
+        int topK, int exclusionZoneSize, int windowSize) {
+        var ez = Math.max(1, exclusionZoneSize);
+        var selected = new ArrayList<Motif>(topK);
+        int limit = (int) Math.min(len, 4L * topK);
+        while (true) {
+            var order = smallest(distances, indexes, exact, len, limit);
+            selected.clear();
+            for (int i = 0; i < order.length && selected.size() < topK; i++) {
+                // pair is reported once, by its first subsequence
+                int a = Math.min(order[i], indexes[order[i]]);
+                int b = Math.max(order[i], indexes[order[i]]);
+                var overlaps = false;
+                for (var motif : selected) {
+                    if (Math.abs(a - motif.index()) < ez || Math.abs(a - motif.neighborIndex()) < ez
+                        || Math.abs(b - motif.index()) < ez
+                        || Math.abs(b - motif.neighborIndex()) < ez) {
+                        overlaps = true;
+                        break;
+                    }
+                }
+                if (!overlaps) {
+                    selected.add(new Motif(windowSize, a, b, distances[order[i]]));
+                }
+            }
+            if (selected.size() == topK || order.length < limit || limit == len) {
+                return selected.toArray(Motif[]::new);
+            }
+            limit = (int) Math.min(len, 2L * limit);
+        }
+    }
+
+    /**
+     * @return up to limit rows with the smallest finite distance, in ascending order of distance
+     * and index
+     */
+    private static int[] smallest(double[] distances, int[] indexes, boolean[] exact, int len,
+        int limit) {
+        // max heap of the smallest distances seen so far
+        var heapKey = new double[limit];
+        var heapIndex = new int[limit];
+        int size = 0;
+        for (int i = 0; i < len; i++) {
+            var d = distances[i];
+            if ((exact != null && !exact[i]) || indexes[i] < 0 || !Double.isFinite(d)) {
+                continue;
+            }
+            if (size < limit) {
+                heapKey[size] = d;
+                heapIndex[size] = i;
+                siftUp(heapKey, heapIndex, size++);
+            } else if (d < heapKey[0]) {
+                heapKey[0] = d;
+                heapIndex[0] = i;
+                siftDown(heapKey, heapIndex, size);
+            }
+        }
+        var order = new int[size];
+        while (size > 0) {
+            order[size - 1] = heapIndex[0];
+            heapKey[0] = heapKey[--size];
+            heapIndex[0] = heapIndex[size];
+            siftDown(heapKey, heapIndex, size);
+        }
+        return order;
+    }
+
+    /**
+     * Pair of a row comes after every motif with a distance below the floor in the greedy order,
+     * and all rows before such motif are exact, so the pair is excluded when it overlaps one.
+     *
+     * @param floor lower bound of the distance of every row which is not exact
+     */
+    private static boolean excluded(Motif[] selected, int i, double floor, int exclusionZoneSize) {
+        var ez = Math.max(1, exclusionZoneSize);
+        for (var motif : selected) {
+            if (motif.distance() < floor && (Math.abs(i - motif.index()) < ez
+                || Math.abs(i - motif.neighborIndex()) < ez)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double threshold(Motif[] selected, int topK) {
+        return selected.length == topK ? selected[topK - 1].distance() : Double.POSITIVE_INFINITY;
+    }
+
+    private static int exclusionZoneSize(int windowSize, double exclusionZone) {
+        return (int) Math.floor(windowSize * exclusionZone + Util.EPS);
+    }
+
+    /**
+     * Partial distance profiles of all subsequences, with nearest neighbours of the current
+     * window size.
+     */
+    private static final class PartialProfiles {
+
+        private static final int[] EMPTY = new int[0];
+
+        private final PrefixSumStatistics stats;
+
+        private final double[] x;
+
+        private final int partialSize;
+
+        private final double exclusionZone;
+
+        /**
+         * Neighbour indexes of partial distance profiles, -1 when neighbour is out of range.
+         */
+        private final int[][] neighbors;
+
+        /**
+         * Dot products of partial distance profiles at current window size.
+         */
+        private final double[][] products;
+
+        /**
+         * Smallest lower bound of neighbours not kept in partial distance profile, multiplied by
+         * standard deviation of the subsequence at current window size gives the bound.
+         */
+        private final double[] bounds;
+
+        private final double[] nnDistance;
+
+        private final int[] nnIndex;
+
+        private double[] means;
+
+        private double[] stdDevs;
+
+        /**
+         * Inverse standard deviations at current window size, 0 for constant subsequences.
+         */
+        private double[] invStdDevs;
+
+        private boolean[] skips;
+
+        private final double[] rowProducts;
+
+        /*
+         * Scratch heap of a seeded row.
+         */
+        private final double[] heapKey;
+        private final int[] heapIndex;
+
+        /**
+         * Forward transform of the data, real and imaginary parts, shared by every recomputed
+         * row of every window size.
+         */
+        private double[][] dataFft;
+
+        private double[][] queryFft;
+
+        private PartialProfiles(PrefixSumStatistics stats, int partialSize, double exclusionZone,
+            int rows) {
+            this.stats = stats;
+            this.x = stats.data();
+            this.partialSize = partialSize;
+            this.exclusionZone = exclusionZone;
+            this.neighbors = new int[rows][];
+            this.products = new double[rows][];
+            this.bounds = new double[rows];
+            this.nnDistance = new double[rows];
+            this.nnIndex = new int[rows];
+            this.rowProducts = new double[rows];
+            this.heapKey = new double[partialSize + 1];
+            this.heapIndex = new int[partialSize + 1];
+        }
+
+        /**
+         * Prepares statistics of window size l.
+         */
+        private void prepare(int l) {
+            this.means = stats.means(l);
+            this.stdDevs = stats.stdDevs(l);
+            this.invStdDevs = new double[means.length];
+            this.skips = new boolean[means.length];
+            for (int j = 0; j < skips.length; j++) {
+                skips[j] = stats.skip(j, l);
+                invStdDevs[j] = stdDevs[j] > 0 ? 1.0d / stdDevs[j] : 0.0d;
+            }
+        }
+
+        /**
+         * Recomputes distance profiles of subsequences i and k at window size l, k is -1 when
+         * there is only one. Both real queries share one complex transform, i in its real part and
+         * k in its imaginary part, so their products with the data are the real and imaginary
+         * parts of the inverse transform. Data transform is computed once.
+         */
+        private void recompute(int i, int k, int l) {
+            int padSize = Util.padSize(x.length);
+            if (dataFft == null) {
+                dataFft = new double[][]{Arrays.copyOf(x, padSize), new double[padSize]};
+                FastFourierTransformer.transformInPlace(dataFft, DftNormalization.STANDARD,
+                    TransformType.FORWARD);
+                queryFft = new double[2][padSize];
+            }
+            var re = queryFft[0];
+            var im = queryFft[1];
+            Arrays.fill(re, 0.0d);
+            Arrays.fill(im, 0.0d);
+            for (int t = 0; t < l; t++) {
+                re[t] = x[i + l - 1 - t];
+            }
+            if (k >= 0) {
+                for (int t = 0; t < l; t++) {
+                    im[t] = x[k + l - 1 - t];
+                }
+            }
+            FastFourierTransformer.transformInPlace(queryFft, DftNormalization.STANDARD,
+                TransformType.FORWARD);
+            var dataRe = dataFft[0];
+            var dataIm = dataFft[1];
+            for (int t = 0; t < padSize; t++) {
+                var r = re[t] * dataRe[t] - im[t] * dataIm[t];
+                im[t] = re[t] * dataIm[t] + im[t] * dataRe[t];
+                re[t] = r;
+            }
+            FastFourierTransformer.transformInPlace(queryFft, DftNormalization.STANDARD,
+                TransformType.INVERSE);
+            int len = x.length - l + 1;
+            System.arraycopy(re, l - 1, rowProducts, 0, len);
+            seed(i, l, rowProducts);
+            if (k >= 0) {
+                System.arraycopy(im, l - 1, rowProducts, 0, len);
+                seed(k, l, rowProducts);
+            }
+        }
+
+        /**
+         * Builds partial distance profile of a subsequence from its full dot product profile, its
+         * nearest neighbour is exact after this.
+         */
+        private void seed(int i, int l, double[] qt) {
+            nnDistance[i] = Double.POSITIVE_INFINITY;
+            nnIndex[i] = -1;
+            if (skips[i]) {
+                // every longer subsequence contains the same non-finite value
+                neighbors[i] = EMPTY;
+                bounds[i] = Double.POSITIVE_INFINITY;
+                return;
+            }
+            int len = x.length - l + 1;
+            int ez = Math.max(1, exclusionZoneSize(l, exclusionZone));
+            var lmu = l * means[i];
+            var sig = stdDevs[i];
+            var scale = sig > 0 ? 1.0d / (l * sig) : 0.0d;
+            // max heap of partialSize + 1 smallest lower bounds, keyed by 1 - q^2, or 1 when q <= 0
+            var heapKey = this.heapKey;
+            var heapIndex = this.heapIndex;
+            int size = 0;
+            var best = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < len; j++) {
+                if (Math.abs(i - j) < ez || skips[j]) {
+                    continue;
+                }
+                var invJ = invStdDevs[j];
+                var corr = 0.0d;
+                if (scale > 0 && invJ > 0) {
+                    corr = (qt[j] - lmu * means[j]) * scale * invJ;
+                    corr = Math.max(-1.0d, Math.min(1.0d, corr));
+                    if (corr > best) {
+                        best = corr;
+                        nnIndex[i] = j;
+                    }
+                }
+                var key = corr <= 0 ? 1.0d : 1.0d - corr * corr;
+                if (size <= partialSize) {
+                    heapKey[size] = key;
+                    heapIndex[size] = j;
+                    siftUp(heapKey, heapIndex, size++);
+                } else if (key < heapKey[0]) {
+                    heapKey[0] = key;
+                    heapIndex[0] = j;
+                    siftDown(heapKey, heapIndex, size);
+                }
+            }
+            if (nnIndex[i] >= 0) {
+                nnDistance[i] = Math.sqrt(2.0d * l * (1.0d - best));
+            }
+            if (size > partialSize) {
+                bounds[i] = Math.sqrt(l * heapKey[0]) * sig;
+                heapKey[0] = heapKey[--size];
+                heapIndex[0] = heapIndex[size];
+            } else {
+                bounds[i] = Double.POSITIVE_INFINITY;
+            }
+            neighbors[i] = new int[size];
+            products[i] = new double[size];
+            for (int k = 0; k < size; k++) {
+                neighbors[i][k] = heapIndex[k];
+                products[i][k] = qt[heapIndex[k]];
+            }
+        }
+
+        /**
+         * Extends dot products of partial distance profile of a subsequence to window size l, by
+         * one point since the previous window size, and finds nearest neighbour within it. Must be
+         * called for every subsequence of every window size after the minimum one.
+         *
+         * @return lower bound of nearest neighbour distance, equal to the distance when it is
+         * exact
+         */
+        private double evaluate(int i, int l) {
+            nnDistance[i] = Double.POSITIVE_INFINITY;
+            nnIndex[i] = -1;
+            int len = x.length - l + 1;
+            int ez = Math.max(1, exclusionZoneSize(l, exclusionZone));
+            var sig = stdDevs[i];
+            var valid = !skips[i] && sig > 0;
+            var lmu = l * means[i];
+            var scale = valid ? 1.0d / (l * sig) : 0.0d;
+            var neighbors = this.neighbors[i];
+            var products = this.products[i];
+            var xi = x[i + l - 1];
+            var best = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < neighbors.length; k++) {
+                int j = neighbors[k];
+                if (j < 0) {
+                    continue;
+                }
+                if (j >= len) {
+                    neighbors[k] = -1;
+                    continue;
+                }
+                products[k] += xi * x[j + l - 1];
+                var invJ = invStdDevs[j];
+                if (!valid || Math.abs(i - j) < ez || skips[j] || invJ == 0) {
+                    continue;
+                }
+                var corr = (products[k] - lmu * means[j]) * scale * invJ;
+                if (corr > best || (corr == best && j < nnIndex[i])) {
+                    best = corr;
+                    nnIndex[i] = j;
+                }
+            }
+            if (!valid) {
+                return Double.POSITIVE_INFINITY;
+            }
+            if (nnIndex[i] >= 0) {
+                best = Math.max(-1.0d, Math.min(1.0d, best));
+                nnDistance[i] = Math.sqrt(2.0d * l * (1.0d - best));
+            }
+            var bound = bounds[i] / sig;
+            return nnDistance[i] <= bound ? nnDistance[i] : bound;
+        }
+    }
+
+    /*
+     * Max heap of keys with parallel indexes, equal keys are ordered by index.
+     */
+
+    private static boolean greater(double[] values, int[] indexes, int a, int b) {
+        return values[a] > values[b] || (values[a] == values[b] && indexes[a] > indexes[b]);
+    }
+
+    private static void siftUp(double[] values, int[] indexes, int k) {
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (!greater(values, indexes, k, parent)) {
+                break;
+            }
+            swap(values, indexes, parent, k);
+            k = parent;
+        }
+    }
+
+    private static void siftDown(double[] values, int[] indexes, int size) {
+        int k = 0;
+        while (true) {
+            int child = 2 * k + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && greater(values, indexes, child + 1, child)) {
+                child++;
+            }
+            if (!greater(values, indexes, child, k)) {
+                break;
+            }
+            swap(values, indexes, k, child);
+            k = child;
+        }
+    }
+
+    private static void swap(double[] values, int[] indexes, int a, int b) {
+        var value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+        var index = indexes[a];
+        indexes[a] = indexes[b];
+        indexes[b] = index;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.pmp;
+
+/**
+ * Top motifs of every window size found by {@link VALMOD}.
+ *
+ * @param windows    window sizes
+ * @param motifs     motifs of every window size, ordered by distance
+ * @param recomputed number of rows which distance profile was recomputed for every window size,
+ *                   because lower bound of their partial distance profile could not prune them
+ */
+public record VariableLengthMotifs(int[] windows, Motif[][] motifs, int[] recomputed) {
+
+    public Motif[] motifs(int windowSize) {
+        for (int i = 0; i < windows.length; i++) {
+            if (windows[i] == windowSize) {
+                return motifs[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Motif pair.
+     *
+     * @param windowSize    window size
+     * @param index         index of the first subsequence of the pair
+     * @param neighborIndex index of the second subsequence of the pair
+     * @param distance      z-normalized euclidean distance
+     */
+    public record Motif(int windowSize, int index, int neighborIndex, double distance) {
+
+    }
+}
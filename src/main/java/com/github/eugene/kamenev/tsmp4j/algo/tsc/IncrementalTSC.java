@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.algo.tsc;
+
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpxi.MPXI;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Time series chains of a stream, maintained on top of {@link MPXI}. Two subsequences are linked
+ * when each is the nearest neighbour of the other in its direction: left nearest neighbour of the
+ * later one and right nearest neighbour of the earlier one. Left neighbour of a new subsequence is
+ * final, right neighbour of an older subsequence can only move to the new one, so an update forms
+ * at most one link, breaks links of the subsequences that adopted the new right neighbour, and
+ * renumbers only the tails of the chains it touched. Subsequences that adopted the new neighbour
+ * are found by one pass over right indexes, which is the cost of the matrix profile update anyway.
+ * Chain depth of every subsequence and a histogram of depths are maintained, so the longest chain
+ * is available without rebuilding the chains. Chains are returned as absolute subsequence indexes
+ * since the start of the stream.
+ * <p>
+ * Zhu Y, Imamura M, Nikovski D, Keogh E. Matrix Profile VII: Time Series Chains: A New Primitive
+ * for Time Series Data Mining. In: 2017 IEEE International Conference on Data Mining (ICDM).
+ * </p>
+ */
+public class IncrementalTSC implements Supplier<int[]> {
+
+    private final MPXI mpxi;
+
+    /**
+     * Number of subsequences in a full horizon, 0 when history is unbounded.
+     */
+    private final int capacity;
+
+    /*
+     * Indexed by slot of absolute subsequence index.
+     */
+    private int[] right = new int[0];
+    private int[] prev = new int[0];
+    private int[] next = new int[0];
+    private int[] depth = new int[0];
+
+    /**
+     * Number of live subsequences of every chain depth.
+     */
+    private int[] depths = new int[2];
+
+    private int maxDepth = 0;
+
+    /**
+     * Absolute index of a subsequence which depth was the maximum when it was set.
+     */
+    private int deepest = -1;
+
+    private int newest = -1;
+
+    private int first = 0;
+
+    /**
+     * @param windowSize  window size
+     * @param historySize number of data points in the sliding horizon, 0 for unbounded history
+     */
+    public IncrementalTSC(int windowSize, int historySize) {
+        this.mpxi = new MPXI(windowSize, historySize);
+        this.capacity = historySize > 0 ? historySize - windowSize + 1 : 0;
+        if (capacity > 0) {
+            allocate(capacity);
+        }
+    }
+
+    public void update(double value) {
+        mpxi.update(value);
+        int length = mpxi.profileLength();
+        if (length == 0) {
+            return;
+        }
+        int offset = mpxi.offset();
+        while (first < offset) {
+            evict(first++);
+        }
+        int n = ++newest;
+        if (capacity == 0 && n == right.length) {
+            allocate(Math.max(16, n * 2));
+        }
+        int slot = slot(n);
+        right[slot] = -1;
+        prev[slot] = -1;
+        next[slot] = -1;
+        setDepth(n, 1);
+
+        // only subsequences which adopted the new one as right neighbour are touched
+        for (int i = first; i < n; i++) {
+            int s = slot(i);
+            if (mpxi.rightIndex(i - offset) == length - 1 && right[s] != n) {
+                right[s] = n;
+                if (next[s] >= 0) {
+                    cut(i);
+                }
+            }
+        }
+
+        int left = mpxi.leftIndex(length - 1);
+        if (left >= 0) {
+            int l = left + offset;
+            if (right[slot(l)] == n) {
+                next[slot(l)] = n;
+                prev[slot] = l;
+                depths[1]--;
+                setDepth(n, depth[slot(l)] + 1);
+            }
+        }
+    }
+
+    /**
+     * @return longest chain in the horizon, ties are resolved arbitrarily, null before the first
+     * subsequence
+     */
+    @Override
+    public int[] get() {
+        if (newest < 0) {
+            return null;
+        }
+        if (deepest < first || depth[slot(deepest)] != maxDepth) {
+            for (int i = first; i <= newest; i++) {
+                if (depth[slot(i)] == maxDepth) {
+                    deepest = i;
+                    break;
+                }
+            }
+        }
+        return chain(deepest);
+    }
+
+    /**
+     * @return number of subsequences in the longest chain
+     */
+    public int longestChainLength() {
+        return maxDepth;
+    }
+
+    /**
+     * @param index absolute subsequence index in the horizon
+     * @return chain containing the subsequence in ascending order
+     */
+    public int[] chain(int index) {
+        if (index < first || index > newest) {
+            throw new IllegalArgumentException("Subsequence is not in the horizon");
+        }
+        int tail = index;
+        while (next[slot(tail)] >= 0) {
+            tail = next[slot(tail)];
+        }
+        var chain = new int[depth[slot(tail)]];
+        for (int i = chain.length - 1, node = tail; i >= 0; i--, node = prev[slot(node)]) {
+            chain[i] = node;
+        }
+        return chain;
+    }
+
+    /**
+     * @return absolute index of the oldest subsequence in the horizon
+     */
+    public int offset() {
+        return first;
+    }
+
+    private void evict(int s) {
+        int slot = slot(s);
+        // older links were broken on eviction, so the subsequence is a chain head
+        if (next[slot] >= 0) {
+            cut(s);
+        }
+        depths[depth[slot]]--;
+        depth[slot] = 0;
+        while (maxDepth > 0 && depths[maxDepth] == 0) {
+            maxDepth--;
+        }
+    }
+
+    /**
+     * Breaks the link from the subsequence to its successor and renumbers the tail.
+     */
+    private void cut(int i) {
+        int j = next[slot(i)];
+        next[slot(i)] = -1;
+        prev[slot(j)] = -1;
+        for (int node = j, d = 1; node >= 0; node = next[slot(node)], d++) {
+            depths[depth[slot(node)]]--;
+            setDepth(node, d);
+        }
+        while (maxDepth > 0 && depths[maxDepth] == 0) {
+            maxDepth--;
+        }
+    }
+
+    private void setDepth(int node, int d) {
+        depth[slot(node)] = d;
+        if (d >= depths.length) {
+            depths = Arrays.copyOf(depths, Math.max(d + 1, depths.length * 2));
+        }
+        depths[d]++;
+        if (d > maxDepth) {
+            maxDepth = d;
+            deepest = node;
+        }
+    }
+
+    private int slot(int index) {
+        return capacity > 0 ? index % capacity : index;
+    }
+
+    private void allocate(int size) {
+        right = Arrays.copyOf(right, size);
+        prev = Arrays.copyOf(prev, size);
+        next = Arrays.copyOf(next, size);
+        depth = Arrays.copyOf(depth, size);
+    }
+}
@@ -17,14 +17,17 @@
 
 package com.github.eugene.kamenev.tsmp4j.algo.tsc;
 
+import com.github.eugene.kamenev.tsmp4j.algo.mp.stomp.RangeIndexArena;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.stomp.RangeIndexMatrixProfile;
 import com.github.eugene.kamenev.tsmp4j.algo.mp.stomp.STOMP;
+import com.github.eugene.kamenev.tsmp4j.stats.BaseRollingWindowStatistics;
 import com.github.eugene.kamenev.tsmp4j.stats.BaseWindowStatistic;
 import com.github.eugene.kamenev.tsmp4j.stats.RollingWindowStatistics;
+import com.github.eugene.kamenev.tsmp4j.utils.Parallel;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Supplier;
-import java.util.stream.IntStream;
 
 /**
  * Robust Time Series Chain Discovery with Incremental Nearest Neighbors
@@ -51,8 +54,19 @@ public class TSC implements Supplier<int[][]> {
 
     private final STOMP stomp;
 
-    public TSC(STOMP stomp) {
+    private final ExecutorService executor;
+
+    /**
+     * @param stomp    computes matrix profile with range indexes
+     * @param executor computes chains in parallel, may be null
+     */
+    public TSC(STOMP stomp, ExecutorService executor) {
         this.stomp = stomp;
+        this.executor = executor;
+    }
+
+    public TSC(STOMP stomp) {
+        this(stomp, null);
     }
 
     public TSC(RollingWindowStatistics<BaseWindowStatistic> stats) {
@@ -71,6 +85,10 @@ public class TSC implements Supplier<int[][]> {
         this(new STOMP(winSize, bufferSize, exclusionZone, true));
     }
 
+    public TSC(int winSize, int bufferSize, double exclusionZone, ExecutorService executor) {
+        this(new STOMP(winSize, bufferSize, exclusionZone, true), executor);
+    }
+
     public void update(double value) {
         stomp.update(value);
     }
@@ -86,15 +104,48 @@ public class TSC implements Supplier<int[][]> {
         int len = stomp.rollingStatistics().getStatsBuffer().getLength();
         int[][] chains = new int[len - winSize + 1][];
 
-        for (int i = 0; i < chains.length; i++) {
-            chains[i] = computeChain(i, winSize, mp);
-            Arrays.sort(chains[i]);
+        var bounds = Parallel.split(chains.length, Parallel.parallelism(executor));
+        var tasks = new ArrayList<Callable<int[][]>>(bounds.length - 1);
+        for (int b = 0; b < bounds.length - 1; b++) {
+            int from = bounds[b];
+            int to = bounds[b + 1];
+            tasks.add(() -> {
+                var part = new int[to - from][];
+                var buffers = new ChainBuffers(chains.length);
+                for (int i = from; i < to; i++) {
+                    part[i - from] = computeChain(i, winSize, mp, buffers);
+                }
+                return part;
+            });
+        }
+        var parts = Parallel.invokeAll(executor, tasks);
+        for (int b = 0; b < parts.size(); b++) {
+            System.arraycopy(parts.get(b), 0, chains, bounds[b], parts.get(b).length);
         }
-
         return chains;
     }
 
+    /**
+     * Scores chains with rolling statistics of the series, see
+     * {@link #bestScore(RollingWindowStatistics, int[][])}.
+     */
+    public BestScore bestScore(int[][] chains) {
+        return bestScore(stomp.rollingStatistics(), chains);
+    }
+
     public static BestScore bestScore(double[] ts, int[][] chains, int winSize) {
+        return bestScore(BaseRollingWindowStatistics.of(ts, winSize), chains);
+    }
+
+    /**
+     * Chain score is the distance between its first and last links divided by the maximum
+     * distance between consecutive links, ties are resolved by the sum of correlations of
+     * consecutive links. Distances and correlations of z-normalized links are derived from
+     * rolling mean and standard deviation, only dot products of links centred by their means are
+     * computed.
+     */
+    public static BestScore bestScore(RollingWindowStatistics<?> stats, int[][] chains) {
+        int winSize = stats.windowSize();
         int maxScore = Integer.MIN_VALUE;
         double maxCorx = Double.NEGATIVE_INFINITY;
         int loc = -1;
@@ -106,20 +157,17 @@ public class TSC implements Supplier<int[][]> {
             double maxDist = Double.NEGATIVE_INFINITY;
             double sumCorx = 0;
 
-            var firstZ = zscore(Arrays.copyOfRange(ts, chain[0], chain[0] + winSize));
-            var lastZ = zscore(Arrays.copyOfRange(ts, chain[chain.length - 1], chain[chain.length - 1] + winSize));
-            double dist = calculateDistance(firstZ, lastZ);
+            double dist = distance(winSize,
+                correlation(stats, chain[0], chain[chain.length - 1], winSize));
 
             for (int j = 0; j < chain.length - 1; j++) {
-                var curZ = zscore(Arrays.copyOfRange(ts, chain[j], chain[j] + winSize));
-                double[] nextZ = zscore(Arrays.copyOfRange(ts, chain[j + 1], chain[j + 1] + winSize));
+                var corr = correlation(stats, chain[j], chain[j + 1], winSize);
 
                 // Update the max distance
-                double currentDist = calculateDistance(curZ, nextZ);
-                maxDist = Math.max(maxDist, currentDist);
+                maxDist = Math.max(maxDist, distance(winSize, corr));
 
-                // Accumulate dot product sum for correlation
-                sumCorx += dotProduct(curZ, nextZ);
+                // Accumulate dot product sum of z-normalized links
+                sumCorx += winSize * corr;
             }
 
             int score = (int) Math.round(dist / maxDist);
@@ -135,71 +183,100 @@ public class TSC implements Supplier<int[][]> {
         return new BestScore(loc, maxScore, chains[loc]);
     }
 
-    private int[] computeChain(int idx, int winSize, RangeIndexMatrixProfile mp) {
-        var chain = new ArrayList<Integer>();
-
-        while (mp.leftIndexes()[idx] > -1) {
-            chain.add(idx);
-            idx = mp.leftIndexes()[idx];
+    /**
+     * Follows left nearest neighbours from the index and keeps the links that stay the best so
+     * far neighbours of their anchors.
+     *
+     * @return chain in ascending order, empty if it has less than two links
+     */
+    private static int[] computeChain(int idx, int winSize, RangeIndexMatrixProfile mp,
+        ChainBuffers buffers) {
+        var leftIndexes = mp.leftIndexes();
+        var chain = buffers.chain;
+        int size = 0;
+        while (leftIndexes[idx] > -1) {
+            chain[size++] = idx;
+            idx = leftIndexes[idx];
         }
 
-        if (chain.size() <= 1) {
+        if (size <= 1) {
             return new int[0];
         }
 
-        var acceptChain = new ArrayList<Integer>();
-        acceptChain.add(chain.get(0));
-        var crit = new ArrayList<Integer>();
-
-        for (int i = 0; i < chain.size() - 1; i++) {
-            int anchor = chain.get(i + 1);
-            int node = chain.get(i);
-            if (isBSF(mp, anchor, node, winSize).isBSF()) {
-                acceptChain.add(anchor);
-                crit.add(node);
-            } else if (!crit.isEmpty() && isBSF(mp, anchor, crit.get(crit.size() - 1), winSize).isBSF()) {
-                acceptChain.add(anchor);
+        var accepted = buffers.accepted;
+        int acceptedSize = 0;
+        accepted[acceptedSize++] = chain[0];
+        int lastCrit = -1;
+
+        for (int i = 0; i < size - 1; i++) {
+            int anchor = chain[i + 1];
+            int node = chain[i];
+            if (isBSF(mp, anchor, node, winSize)) {
+                accepted[acceptedSize++] = anchor;
+                lastCrit = node;
+            } else if (lastCrit >= 0 && isBSF(mp, anchor, lastCrit, winSize)) {
+                accepted[acceptedSize++] = anchor;
             } else {
                 break;
             }
         }
 
-        return acceptChain.stream().mapToInt(Integer::intValue).toArray();
-    }
-
-    private static double[] zscore(double[] data) {
-        double mean = Arrays.stream(data).average().orElse(0);
-        double std = Math.sqrt(Arrays.stream(data).map(x -> Math.pow(x - mean, 2)).average().orElse(0));
-        return Arrays.stream(data).map(x -> (x - mean) / std).toArray();
+        // links follow left neighbours, so they are in descending order
+        var result = new int[acceptedSize];
+        for (int i = 0; i < acceptedSize; i++) {
+            result[i] = accepted[acceptedSize - 1 - i];
+        }
+        return result;
     }
 
-    private static double calculateDistance(double[] a, double[] b) {
-        return Math.sqrt(IntStream.range(0, a.length).mapToDouble(i -> Math.pow(a[i] - b[i], 2)).sum());
+    private static double correlation(RollingWindowStatistics<?> stats, int a, int b,
+        int winSize) {
+        // centred inside the loop, so large offsets do not cancel
+        var meanA = stats.mean(a);
+        var meanB = stats.mean(b);
+        double product = 0;
+        for (int k = 0; k < winSize; k++) {
+            product += (stats.x(a + k) - meanA) * (stats.x(b + k) - meanB);
+        }
+        var corr = product / (winSize * stats.stdDev(a) * stats.stdDev(b));
+        return Math.max(-1.0d, Math.min(1.0d, corr));
     }
 
-    private static double dotProduct(double[] a, double[] b) {
-        return IntStream.range(0, a.length).mapToDouble(i -> a[i] * b[i]).sum();
+    private static double distance(int winSize, double correlation) {
+        return Math.sqrt(2.0d * winSize * (1.0d - correlation));
     }
 
-    private IsBSF isBSF(RangeIndexMatrixProfile mp, int x, int y, int winLen) {
+    private static boolean isBSF(RangeIndexMatrixProfile mp, int x, int y, int winLen) {
         var len = winLen * 0.5d;
-        var rIdx = mp.rightToLeft()[x];
+        var rangeIndexes = mp.rangeIndexes();
+        int kind = RangeIndexArena.RIGHT_TO_LEFT;
         int minDiff = Math.abs(y - x);
-        for (int i = rIdx.indexes().length - 1; i >= 0; i--) {
-            var idx = rIdx.indexes()[i];
+        for (int i = rangeIndexes.size(kind, x) - 1; i >= 0; i--) {
+            var idx = rangeIndexes.index(kind, x, i);
             var diff = Math.abs(y - idx);
             if (diff < minDiff) {
                 minDiff = diff;
             }
         }
-        return new IsBSF(minDiff < len, minDiff);
+        return minDiff < len;
     }
 
     public record BestScore(int index, double score, int[] predIdxOurs) {
 
     }
 
-    private record IsBSF(boolean isBSF, int idx) {
+    /**
+     * Scratch buffers of a single thread, a chain has at most one link per subsequence.
+     */
+    private static final class ChainBuffers {
+
+        private final int[] chain;
 
+        private final int[] accepted;
+
+        private ChainBuffers(int size) {
+            this.chain = new int[size];
+            this.accepted = new int[size];
+        }
     }
 }
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.stats;
+
+/**
+ * Statistics of a fixed series for any subsequence (start, length) in O(1) after a single O(n)
+ * pass, so algorithms sweeping many window sizes do not rebuild rolling statistics per window.
+ * Prefix sums of x and x^2 are taken over data centered by its mean and accumulated with Neumaier
+ * summation, the running sum and its compensation are kept separately, hence a window sum does
+ * not lose the compensation to cancellation. NaN and infinite values are replaced with zero, same
+ * as in {@link BaseRollingWindowStatistics}, and reported by {@link #skip(int, int)}.
+ */
+public class PrefixSumStatistics {
+
+    private final double[] x;
+
+    private final double center;
+
+    private final double[] sum;
+    private final double[] sumComp;
+    private final double[] sqSum;
+    private final double[] sqSumComp;
+
+    private final int[] nonFinite;
+
+    public PrefixSumStatistics(double[] ts) {
+        int n = ts.length;
+        this.x = new double[n];
+        this.nonFinite = new int[n + 1];
+        var total = 0.0d;
+        var finite = 0;
+        for (int i = 0; i < n; i++) {
+            var value = ts[i];
+            var skip = Double.isNaN(value) || Double.isInfinite(value);
+            x[i] = skip ? 0.0d : value;
+            nonFinite[i + 1] = nonFinite[i] + (skip ? 1 : 0);
+            if (!skip) {
+                total += value;
+                finite++;
+            }
+        }
+        this.center = finite > 0 ? total / finite : 0.0d;
+        this.sum = new double[n + 1];
+        this.sumComp = new double[n + 1];
+        this.sqSum = new double[n + 1];
+        this.sqSumComp = new double[n + 1];
+        double s = 0, c = 0, s2 = 0, c2 = 0;
+        for (int i = 0; i < n; i++) {
+            var d = x[i] - center;
+            var t = s + d;
+            c += Math.abs(s) >= Math.abs(d) ? (s - t) + d : (d - t) + s;
+            s = t;
+            var d2 = d * d;
+            t = s2 + d2;
+            c2 += Math.abs(s2) >= d2 ? (s2 - t) + d2 : (d2 - t) + s2;
+            s2 = t;
+            sum[i + 1] = s;
+            sumComp[i + 1] = c;
+            sqSum[i + 1] = s2;
+            sqSumComp[i + 1] = c2;
+        }
+    }
+
+    public int dataSize() {
+        return x.length;
+    }
+
+    public double x(int i) {
+        return x[i];
+    }
+
+    /**
+     * @return data points with non-finite values replaced by zero, must not be modified
+     */
+    public double[] data() {
+        return x;
+    }
+
+    public double mean(int start, int length) {
+        return center + centeredSum(start, length) / length;
+    }
+
+    /**
+     * @return population variance of subsequence
+     */
+    public double variance(int start, int length) {
+        int end = start + length;
+        var m = centeredSum(start, length) / length;
+        var sq = ((sqSum[end] - sqSum[start]) + (sqSumComp[end] - sqSumComp[start])) / length;
+        return Math.max(0, sq - m * m);
+    }
+
+    public double stdDev(int start, int length) {
+        return Math.sqrt(variance(start, length));
+    }
+
+    /**
+     * @return true if subsequence contains NaN or infinite values
+     */
+    public boolean skip(int start, int length) {
+        return nonFinite[start + length] - nonFinite[start] > 0;
+    }
+
+    public double[] means(int windowSize) {
+        var result = new double[x.length - windowSize + 1];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = mean(i, windowSize);
+        }
+        return result;
+    }
+
+    public double[] stdDevs(int windowSize) {
+        var result = new double[x.length - windowSize + 1];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = stdDev(i, windowSize);
+        }
+        return result;
+    }
+
+    private double centeredSum(int start, int length) {
+        int end = start + length;
+        return (sum[end] - sum[start]) + (sumComp[end] - sumComp[start]);
+    }
+
+    public static PrefixSumStatistics of(double[] ts) {
+        return new PrefixSumStatistics(ts);
+    }
+}
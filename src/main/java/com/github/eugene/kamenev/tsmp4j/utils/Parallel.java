@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.eugene.kamenev.tsmp4j.utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Helpers to execute independent chunks of work on an {@link ExecutorService}. Results are always
+ * returned in submission order, so callers can merge partial results deterministically. A
+ * {@code null} executor runs every task in the calling thread.
+ */
+public final class Parallel {
+
+    private Parallel() {
+    }
+
+    public static int parallelism(ExecutorService executor) {
+        if (executor == null) {
+            return 1;
+        }
+        if (executor instanceof ForkJoinPool pool) {
+            return pool.getParallelism();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    public static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks) {
+        var results = new ArrayList<T>(tasks.size());
+        if (executor == null || tasks.size() < 2) {
+            for (var task : tasks) {
+                results.add(call(task));
+            }
+            return results;
+        }
+        var futures = new ArrayList<Future<T>>(tasks.size());
+        for (var task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        try {
+            for (var future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new CompletionException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new CompletionException(e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Submits tasks in the given order and passes every result to the consumer as soon as its task
+     * completes. The consumer is always invoked in the calling thread.
+     */
+    public static <T> void forEachCompleted(ExecutorService executor, List<Callable<T>> tasks,
+        Consumer<T> consumer) {
+        if (executor == null || tasks.size() < 2) {
+            for (var task : tasks) {
+                consumer.accept(call(task));
+            }
+            return;
+        }
+        var completion = new ExecutorCompletionService<T>(executor);
+        var futures = new HashSet<Future<T>>(tasks.size() * 2);
+        for (var task : tasks) {
+            futures.add(completion.submit(task));
+        }
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                var future = completion.take();
+                // completed results are not retained once consumed, removal is O(1)
+                futures.remove(future);
+                consumer.accept(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new CompletionException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (RuntimeException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw e;
+        }
+    }
+
+    /**
+     * Splits range [0, n) into at most {@code parts} contiguous chunks of roughly equal cost.
+     *
+     * @param n     number of items
+     * @param parts desired number of chunks
+     * @param cost  cost of a single item
+     * @return chunk boundaries, chunk k is [bounds[k], bounds[k + 1])
+     */
+    public static int[] split(int n, int parts, IntToLongFunction cost) {
+        parts = Math.max(1, Math.min(parts, n));
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            total += cost.applyAsLong(i);
+        }
+        int[] bounds = new int[parts + 1];
+        int k = 1;
+        long acc = 0;
+        for (int i = 0; i < n && k < parts; i++) {
+            acc += cost.applyAsLong(i);
+            if (acc * parts >= total * k) {
+                bounds[k++] = i + 1;
+            }
+        }
+        while (k <= parts) {
+            bounds[k++] = n;
+        }
+        return bounds;
+    }
+
+    public static int[] split(int n, int parts) {
+        return split(n, parts, i -> 1L);
+    }
+
+    private static <T> T call(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
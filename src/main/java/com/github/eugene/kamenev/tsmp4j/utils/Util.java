@@ -32,8 +32,11 @@ public class Util {
     public static final double KMODE = 0.6311142d;
 
     public static void shuffleArray(int[] array) {
+        shuffleArray(array, new Random());
+    }
+
+    public static void shuffleArray(int[] array, Random random) {
         int index, temp;
-        Random random = new Random();
         for (int i = array.length - 1; i > 0; i--) {
             index = random.nextInt(i + 1);
             temp = array[index];
@@ -107,4 +110,37 @@ public class Util {
         var transformer = new FastFourierTransformer(DftNormalization.STANDARD);
         return transformer.transform(data, TransformType.INVERSE);
     }
+
+    /**
+     * Sliding dot products of a query against every subsequence of data with the same length,
+     * computed with FFT.
+     *
+     * @param query      query array
+     * @param queryFrom  query start index
+     * @param windowSize query length
+     * @param data       data array
+     * @return dot products, element j is a product of query and data[j, j + windowSize)
+     */
+    public static double[] slidingDotProducts(double[] query, int queryFrom, int windowSize,
+        double[] data) {
+        int n = data.length;
+        int padSize = padSize(n);
+        double[] paddedData = Arrays.copyOf(data, padSize);
+        double[] paddedQuery = new double[padSize];
+        for (int i = 0; i < windowSize; i++) {
+            paddedQuery[i] = query[queryFrom + windowSize - 1 - i];
+        }
+        var transformer = new FastFourierTransformer(DftNormalization.STANDARD);
+        var dataFft = transformer.transform(paddedData, TransformType.FORWARD);
+        var queryFft = transformer.transform(paddedQuery, TransformType.FORWARD);
+        for (int i = 0; i < padSize; i++) {
+            dataFft[i] = dataFft[i].multiply(queryFft[i]);
+        }
+        var inv = transformer.transform(dataFft, TransformType.INVERSE);
+        double[] products = new double[n - windowSize + 1];
+        for (int j = 0; j < products.length; j++) {
+            products[j] = inv[j + windowSize - 1].getReal();
+        }
+        return products;
+    }
 }
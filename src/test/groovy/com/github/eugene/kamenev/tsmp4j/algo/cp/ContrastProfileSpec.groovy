@@ -1,8 +1,11 @@
 package com.github.eugene.kamenev.tsmp4j.algo.cp
 
 import com.github.eugene.kamenev.tsmp4j.BaseSpec
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPXColumns
 import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPXRollingWindowStatistics
 
+import java.util.concurrent.ForkJoinPool
+
 class ContrastProfileSpec extends BaseSpec {
 
     static double ERROR = Math.pow(10, -11);
@@ -24,13 +27,47 @@ class ContrastProfileSpec extends BaseSpec {
             .mapToDouble(t -> t.x())
             .forEach(negativeTs::apply)
 
-        var profile = new ContrastProfileAlgorithm().apply(positiveTs, negativeTs)
+        var pool = parallel ? new ForkJoinPool(2) : null
+        var profile = new ContrastProfileAlgorithm(pool).apply(positiveTs, negativeTs)
 
         then:
         equals(profile.profile(), cmpCheck.x())
         equals(profile.plato(), platoCheck.x())
         equals(profile.platoTwin(), platoTwinCheck.x())
 
+        cleanup:
+        pool?.shutdown()
+
+        where:
+        parallel << [false, true]
+    }
+
+    def 'test one vs many contrast profiles equal single contrast profiles'() {
+        given:
+        var positiveTs = data.stream()
+            .mapToDouble(t -> t.y())
+            .toArray()
+        var negatives = new double[3][]
+        negatives[0] = data.stream().mapToDouble(t -> t.x()).toArray()
+        negatives[1] = data.stream().mapToDouble(t -> t.z()).toArray()
+        negatives[2] = data.stream().mapToDouble(t -> t.x() + t.z()).toArray()
+        var pool = new ForkJoinPool(3)
+
+        when:
+        var profiles = new ContrastProfileAlgorithm(pool).applyAll(positiveTs, negatives, 30)
+
+        then:
+        profiles.length == 3
+        for (int k = 0; k < 3; k++) {
+            var expected = new ContrastProfileAlgorithm().apply(
+                MPXColumns.of(positiveTs, 30), MPXColumns.of(negatives[k], 30))
+            equals(profiles[k].profile(), expected.profile(), 0)
+            equals(profiles[k].plato(), expected.plato(), 0)
+            equals(profiles[k].platoTwin(), expected.platoTwin(), 0)
+        }
+
+        cleanup:
+        pool.shutdown()
     }
 
     def 'test pan contrast profile'() {
@@ -50,6 +87,104 @@ class ContrastProfileSpec extends BaseSpec {
 
     }
 
+    def 'test parallel pan contrast profile streams equal profiles'() {
+        given:
+        var positiveTs = data.stream()
+            .mapToDouble(t -> t.y())
+            .toArray()
+        var negativeTs = data.stream()
+            .mapToDouble(t -> t.x())
+            .toArray()
+        var pool = new ForkJoinPool(4)
+
+        when:
+        var serial = new PanContrastProfileAlgorithm(10, 30, 10).apply(positiveTs, negativeTs)
+        var algorithm = new PanContrastProfileAlgorithm(10, 30, 10, pool)
+        var windows = algorithm.windowSizes()
+        var streamed = new ContrastProfile[windows.length]
+        algorithm.apply(positiveTs, negativeTs, (cp, i) -> streamed[i] = cp)
+
+        then:
+        for (int i = 0; i < windows.length; i++) {
+            assert streamed[i].windowSize() == windows[i]
+            assert serial.profile()[i].windowSize() == windows[i]
+            equals(streamed[i].profile(), serial.profile()[i].profile(), 0)
+            equals(streamed[i].plato(), serial.profile()[i].plato(), 0)
+        }
+
+        cleanup:
+        pool.shutdown()
+    }
+
+    def 'test incremental contrast profile equals batch contrast profile'() {
+        given:
+        var positiveTs = data.stream()
+            .mapToDouble(t -> t.y())
+            .toArray()
+        var negativeTs = data.stream()
+            .mapToDouble(t -> t.x())
+            .toArray()
+        var windowSize = 30
+        var incremental = new IncrementalContrastProfile(windowSize)
+
+        when:
+        // negative series grows first, then both series grow in turns
+        for (int i = 0; i < 100; i++) {
+            incremental.updateNegative(negativeTs[i])
+        }
+        var positiveSize = 0
+        var negativeSize = 100
+        var checks = 0
+        while (positiveSize < positiveTs.length || negativeSize < negativeTs.length) {
+            if (positiveSize < positiveTs.length) {
+                incremental.updatePositive(positiveTs[positiveSize++])
+            }
+            if ((positiveSize % 3 == 0 || positiveSize == positiveTs.length) && negativeSize < negativeTs.length) {
+                incremental.updateNegative(negativeTs[negativeSize++])
+            }
+            if (positiveSize > 2 * windowSize && (positiveSize + negativeSize) % 97 == 0) {
+                var expected = new ContrastProfileAlgorithm().apply(
+                    MPXColumns.of(Arrays.copyOf(positiveTs, positiveSize), windowSize),
+                    MPXColumns.of(Arrays.copyOf(negativeTs, negativeSize), windowSize))
+                var actual = incremental.get()
+                equals(actual.profile(), expected.profile(), 1e-8)
+                equals(actual.plato(), expected.plato())
+                equals(actual.platoTwin(), expected.platoTwin())
+                checks++
+            }
+        }
+
+        then:
+        checks > 5
+    }
+
+    def 'test incremental contrast profile of long series with offset'() {
+        given:
+        int windowSize = 20
+        var random = new Random(17)
+        var positiveTs = new double[2600]
+        var negativeTs = new double[2600]
+        for (int i = 0; i < positiveTs.length; i++) {
+            var pattern = (i % 300) < 40 ? Math.sin(2 * Math.PI * i / 20) : 0
+            positiveTs[i] = 1e6 + pattern + random.nextGaussian() * 0.1
+            negativeTs[i] = 1e6 + random.nextGaussian() * 0.1
+        }
+        var incremental = new IncrementalContrastProfile(windowSize)
+
+        when:
+        for (int i = 0; i < positiveTs.length; i++) {
+            incremental.updatePositive(positiveTs[i])
+            incremental.updateNegative(negativeTs[i])
+        }
+        var expected = new ContrastProfileAlgorithm().apply(
+            MPXColumns.of(positiveTs, windowSize), MPXColumns.of(negativeTs, windowSize))
+        var actual = incremental.get()
+
+        then:
+        equals(actual.profile(), expected.profile(), 1e-6)
+        equals(actual.plato(), expected.plato(), 1e-6)
+    }
+
     def 'test relative frequency matrix profile'() {
         given:
         var rfmpCheck = loadData("rfmp_profile.csv", (rows) -> {
@@ -87,6 +222,146 @@ class ContrastProfileSpec extends BaseSpec {
         }
     }
 
+    def 'test parallel relative frequency matrix profile with nan equals serial'() {
+        given:
+        var positiveTs = data.stream()
+            .mapToDouble(t -> t.y())
+            .toArray()
+        var negativeTs = data.stream()
+            .mapToDouble(t -> t.x())
+            .toArray()
+        positiveTs[100] = Double.NaN
+        negativeTs[200] = Double.NaN
+        negativeTs[201] = Double.NaN
+        var pool = new ForkJoinPool(3)
+
+        when:
+        var serial = new RelativeFrequencyMatrixProfileAlgorithm(3, 30, true, false)
+            .apply(positiveTs, negativeTs)
+        var parallel = new RelativeFrequencyMatrixProfileAlgorithm(3, 30, true, false, pool)
+            .apply(positiveTs, negativeTs)
+
+        then:
+        serial.profile()[0][100] == 0.0d
+        for (int i = 0; i < serial.profile().length; i++) {
+            equals(parallel.indexes()[i], serial.indexes()[i])
+            equals(parallel.profile()[i], serial.profile()[i], 1e-9)
+            for (var index : serial.indexes()[i]) {
+                assert index < 170 || index >= 231
+            }
+        }
+
+        cleanup:
+        pool.shutdown()
+    }
+
+    def 'test relative frequency matrix profile of long series with offset'() {
+        given:
+        int m = 20
+        var random = new Random(23)
+        var positiveTs = new double[2500]
+        var negativeTs = new double[2500]
+        for (int i = 1; i < positiveTs.length; i++) {
+            positiveTs[i] = positiveTs[i - 1] + random.nextGaussian()
+            negativeTs[i] = negativeTs[i - 1] + random.nextGaussian()
+        }
+        for (int i = 0; i < positiveTs.length; i++) {
+            positiveTs[i] += 1e4
+            negativeTs[i] += 1e4
+        }
+        var pool = new ForkJoinPool(3)
+
+        when:
+        var serial = new RelativeFrequencyMatrixProfileAlgorithm(3, m, false, false)
+            .apply(positiveTs, negativeTs)
+        var parallel = new RelativeFrequencyMatrixProfileAlgorithm(3, m, false, false, pool)
+            .apply(positiveTs, negativeTs)
+
+        then:
+        for (int k = 0; k < serial.profile().length; k++) {
+            assert parallel.profile()[k] == serial.profile()[k]
+            assert parallel.indexes()[k] == serial.indexes()[k]
+        }
+        // nearest neighbour distance of rows far from the last reseed
+        for (int i : [1023, 1500, 2047, 2400]) {
+            var expected = Double.POSITIVE_INFINITY
+            var a = zNormalize(Arrays.copyOfRange(positiveTs, i, i + m))
+            for (int j = 0; j <= negativeTs.length - m; j++) {
+                var b = zNormalize(Arrays.copyOfRange(negativeTs, j, j + m))
+                var d = 0.0d
+                for (int k = 0; k < m; k++) {
+                    d += (a[k] - b[k]) * (a[k] - b[k])
+                }
+                expected = Math.min(expected, Math.sqrt(d) / Math.sqrt(negativeTs.length))
+            }
+            assert Math.abs(serial.profile()[0][i] - expected) < 1e-6
+        }
+
+        cleanup:
+        pool.shutdown()
+    }
+
+    private static double[] zNormalize(double[] x) {
+        var mean = Arrays.stream(x).average().orElse(0)
+        var std = Math.sqrt(Arrays.stream(x).map(v -> (v - mean) * (v - mean)).average().orElse(0))
+        return Arrays.stream(x).map(v -> (v - mean) / std).toArray()
+    }
+
+    def 'test nearest neighbor selection equals full sort selection'() {
+        given:
+        var random = new Random(42)
+        var selection = new NearestNeighborSelection()
+
+        expect:
+        for (int run = 0; run < 50; run++) {
+            var n = 50 + random.nextInt(500)
+            var subLength = 3 + random.nextInt(20)
+            var dp = new double[n]
+            for (int i = 0; i < n; i++) {
+                // rounded values produce ties, some values are NaN
+                dp[i] = random.nextInt(10) == 0 ? Double.NaN : Math.round(random.nextDouble() * 20) / 4.0d
+            }
+            for (var K : [-1, 3]) {
+                var expected = sortedNearestNeighbors(dp, subLength, K)
+                var actual = NearestNeighborSelection.getNearestNeighbors(dp, subLength, K)
+                equals(actual.indexes(), expected.indexes())
+                equals(actual.distances(), expected.distances(), 0)
+                var limited = selection.select(dp, subLength, K, 3)
+                var prefix = Math.min(3, expected.indexes().length)
+                equals(limited.indexes(), Arrays.copyOf(expected.indexes(), prefix))
+                equals(limited.distances(), Arrays.copyOf(expected.distances(), prefix), 0)
+            }
+        }
+    }
+
+    /**
+     * Selection over a fully sorted distance profile.
+     */
+    static NearestNeighborSelection.NearestNeighbors sortedNearestNeighbors(double[] dp, int subLength, int K) {
+        int exclusionLength = K == -1 ? (int) Math.ceil(subLength / 2.0) : subLength
+        int KMax = 2 * (dp.length / subLength)
+        double[][] A = new double[dp.length][2]
+        for (int i = 0; i < dp.length; i++) {
+            A[i][0] = i
+            A[i][1] = -dp[i]
+        }
+        Arrays.sort(A, (a, b) -> Double.compare(b[1], a[1]))
+        var exclusionZone = new boolean[dp.length]
+        var indexes = []
+        var distances = []
+        for (int iter = 0; indexes.size() < KMax && iter < A.length - 1; iter++) {
+            int trial = (int) A[iter][0]
+            if (!exclusionZone[trial] && !Double.isNaN(dp[trial])) {
+                indexes << trial
+                distances << dp[trial]
+                for (int j = Math.max(0, trial - exclusionLength); j < Math.min(dp.length, trial + exclusionLength + 1); j++) {
+                    exclusionZone[j] = true
+                }
+            }
+        }
+        return new NearestNeighborSelection.NearestNeighbors(indexes as int[], distances as double[])
+    }
+
     def 'test relative frequency contrast profile'() {
         given:
         var rfcpPlatoCheck = loadData("rfcp_plato.csv", (rows) -> {
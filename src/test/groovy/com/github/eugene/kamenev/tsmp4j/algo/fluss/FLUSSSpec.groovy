@@ -1,7 +1,9 @@
 package com.github.eugene.kamenev.tsmp4j.algo.fluss
 
 import com.github.eugene.kamenev.tsmp4j.BaseSpec
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpxi.MPXI
 import com.github.eugene.kamenev.tsmp4j.algo.mp.stomp.STOMP
+import java.util.concurrent.Executors
 
 class FLUSSSpec extends BaseSpec {
 
@@ -41,4 +43,156 @@ class FLUSSSpec extends BaseSpec {
         equals(fluss.cac(), flussCacCheck)
         equals(fluss.changePoints(), new int[]{940, 874})
     }
+
+    def 'test floss'() {
+        given:
+        int windowSize = 20
+        int historySize = 1000
+        var random = new Random(7)
+        double[] data = new double[4000]
+        for (int i = 0; i < data.length; i++) {
+            var regime = i < 2500 ? Math.sin(2 * Math.PI * i / 25) : (i % 40) / 40.0d
+            data[i] = regime + random.nextGaussian() * 0.05
+        }
+
+        and:
+        var events = new ArrayList<FLOSS.RegimeChange>()
+        var floss = new FLOSS(windowSize, historySize, 0.4d, events::add)
+        var mpxi = new MPXI(windowSize, historySize)
+        var iac = FLOSS.idealArcCurve(historySize - windowSize + 1)
+
+        when:
+        var mismatches = 0
+        for (int i = 0; i < data.length; i++) {
+            floss.update(data[i])
+            mpxi.update(data[i])
+            if (floss.position() >= 0 && i % 50 == 0) {
+                // arc counts rebuilt from left indexes of the horizon
+                int n = mpxi.profileLength()
+                var marks = new int[n + 1]
+                for (int j = 0; j < n; j++) {
+                    int left = mpxi.leftIndex(j)
+                    if (left >= 0) {
+                        marks[left]++
+                        marks[j]--
+                    }
+                }
+                int rel = floss.position() - floss.offset()
+                int arcs = 0
+                for (int k = 0; k <= rel; k++) {
+                    arcs += marks[k]
+                }
+                if (Math.abs(Math.min(arcs / iac[rel], 1.0d) - floss.cac()) > 1e-12
+                        || Math.abs(floss.correctedArcCurve()[rel] - floss.cac()) > 1e-12) {
+                    mismatches++
+                }
+            }
+        }
+
+        then:
+        mismatches == 0
+        events.size() == 1
+        Math.abs(events[0].index() - 2500) < windowSize
+        events[0].cac() < 0.4d
+    }
+
+    def 'test multidimensional fluss of a single channel'() {
+        given:
+        int windowSize = 10
+        int buffSize = 1000
+        var channel = Arrays.copyOf(flussData, buffSize)
+
+        when:
+        var fluss = new MultidimensionalFLUSS(windowSize, 2, ts -> {
+            var stomp = new STOMP(windowSize, ts.length)
+            Arrays.stream(ts).forEach(stomp::update)
+            return stomp.get()
+        }, null).apply(new double[][]{channel})
+
+        then:
+        equals(fluss.cac(), flussCacCheck)
+        equals(fluss.changePoints(), new int[]{940, 874})
+    }
+
+    def 'test multidimensional fluss'() {
+        given:
+        int windowSize = 20
+        var random = new Random(5)
+        var channels = new double[4][3000]
+        for (int i = 0; i < 3000; i++) {
+            var before = i < 1800
+            channels[0][i] = (before ? Math.sin(2 * Math.PI * i / 30) : Math.sin(2 * Math.PI * i / 55))
+            channels[1][i] = (before ? (i % 25) / 25.0d : Math.abs(Math.sin(2 * Math.PI * i / 40)))
+            channels[2][i] = (before ? Math.cos(2 * Math.PI * i / 45) : ((i % 35) < 17 ? 1 : -1))
+            channels[3][i] = random.nextGaussian()
+            for (int c = 0; c < 3; c++) {
+                channels[c][i] += random.nextGaussian() * 0.05
+            }
+        }
+        var executor = Executors.newFixedThreadPool(3)
+
+        when:
+        var serial = new MultidimensionalFLUSS(windowSize, 1).apply(channels)
+        var parallel = new MultidimensionalFLUSS(windowSize, 1, executor).apply(channels)
+
+        then:
+        equals(serial.cac(), parallel.cac())
+        serial.changePoints() == parallel.changePoints()
+        serial.changePoints().length == 1
+        Math.abs(serial.changePoints()[0] - 1800) < windowSize * 2
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def 'test fluss extract matches full scan'() {
+        given:
+        var random = new Random(11)
+
+        expect:
+        for (int t = 0; t < 200; t++) {
+            int n = 1 + random.nextInt(3000)
+            var cac = new double[n]
+            for (int i = 0; i < n; i++) {
+                // coarse values produce ties, some positions are never selectable
+                cac[i] = random.nextInt(20) / 16.0d
+                if (random.nextInt(50) == 0) {
+                    cac[i] = random.nextBoolean() ? Double.NaN : Double.POSITIVE_INFINITY
+                }
+            }
+            int windowSize = 1 + random.nextInt(20)
+            int exclusionZone = random.nextInt(6)
+            int numSegments = random.nextInt(40)
+            assert FLUSS.flussExtract(exclusionZone, windowSize, numSegments, cac) ==
+                    scanExtract(exclusionZone, windowSize, numSegments, cac)
+        }
+    }
+
+    /**
+     * Extraction by scanning the whole arc curve for every segment.
+     */
+    static int[] scanExtract(int exclusionZone, int windowSize, int numSegments, double[] cac) {
+        var result = []
+        var excluded = new HashSet<Integer>()
+        int ez = windowSize * exclusionZone
+        for (int s = 0; s < numSegments; s++) {
+            int idx = -1
+            double min = Double.POSITIVE_INFINITY
+            for (int i = 0; i < cac.length; i++) {
+                if (!excluded.contains(i) && cac[i] < min) {
+                    min = cac[i]
+                    idx = i
+                }
+            }
+            if (idx < 0 || cac[idx] >= 1) {
+                break
+            }
+            result << idx
+            excluded << idx
+            for (int j = Math.max(0, idx - ez); j < Math.min(cac.length, idx + ez); j++) {
+                excluded << j
+            }
+        }
+        return result as int[]
+    }
 }
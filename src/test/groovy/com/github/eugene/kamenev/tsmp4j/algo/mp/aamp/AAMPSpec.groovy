@@ -4,6 +4,8 @@ import com.github.eugene.kamenev.tsmp4j.BaseSpec
 import com.github.eugene.kamenev.tsmp4j.stats.NoStatistic
 import com.github.eugene.kamenev.tsmp4j.stats.RollingWindowWithoutStatistics
 
+import java.util.concurrent.ForkJoinPool
+
 class AAMPSpec extends BaseSpec {
 
         def 'test aamp distance profile'() {
@@ -27,4 +29,105 @@ class AAMPSpec extends BaseSpec {
             equals(checkMp.mp(), mp.profile())
             equals(checkMp.pi(), mp.indexes())
         }
+
+        def 'test aamp specialized kernels are equivalent to generic kernel'() {
+            given:
+            var windowSize = 30
+            var x = data.stream()
+                .mapToDouble(t -> t.x())
+                .toArray()
+            var len = x.length - windowSize + 1
+
+            when:
+            double[] fast = new double[len]
+            int[] fastIdx = new int[len]
+            Arrays.fill(fast, Double.POSITIVE_INFINITY)
+            AAMP.selfJoin(x, windowSize, 15, p, fast, fastIdx)
+
+            double[] generic = new double[len]
+            int[] genericIdx = new int[len]
+            Arrays.fill(generic, Double.POSITIVE_INFINITY)
+            AAMP.selfJoinPow(x, windowSize, 15, x.length - windowSize, p, generic, genericIdx)
+            AAMP.root(generic, p)
+
+            then:
+            equals(fast, generic, Math.pow(10, -9))
+            equals(fastIdx, genericIdx)
+
+            where:
+            p << [1.0d, 2.0d]
+        }
+
+        def 'test parallel aamp self join produces same matrix profile'() {
+            given:
+            var windowSize = 30
+            var pool = new ForkJoinPool(4)
+            var serial = new AAMP(new RollingWindowWithoutStatistics(windowSize, data.size()), 0.5d, p)
+            var parallel = new AAMP(new RollingWindowWithoutStatistics(windowSize, data.size()), 0.5d, p, pool)
+
+            when:
+            data.stream().forEach(t -> {
+                serial.update(t.x())
+                parallel.update(t.x())
+            })
+            var expected = serial.get()
+            var actual = parallel.get()
+
+            then:
+            equals(actual.profile(), expected.profile(), 0)
+            equals(actual.indexes(), expected.indexes())
+
+            cleanup:
+            pool.shutdown()
+
+            where:
+            p << [1.0d, 2.0d, 3.0d]
+        }
+
+        def 'test aamp ab join'() {
+            given:
+            var windowSize = 30
+            var pool = new ForkJoinPool(4)
+            var a = data.stream().limit(200).mapToDouble(t -> t.x()).toArray()
+            var b = data.stream().skip(200).limit(150).mapToDouble(t -> t.x()).toArray()
+            var reference = new AAMP(new RollingWindowWithoutStatistics(windowSize, a.length), p)
+            var query = new RollingWindowWithoutStatistics(windowSize, b.length)
+
+            when:
+            a.each { reference.update(it) }
+            b.each { query.apply(it) }
+            var join = reference.get(query)
+            var parallel = AAMP.join(a, b, windowSize, p, 0.5d, true, pool)
+            var na = a.length - windowSize + 1
+            var nb = b.length - windowSize + 1
+            double[] ab = new double[na]
+            double[] ba = new double[nb]
+            Arrays.fill(ab, Double.POSITIVE_INFINITY)
+            Arrays.fill(ba, Double.POSITIVE_INFINITY)
+            for (int i = 0; i < na; i++) {
+                for (int j = 0; j < nb; j++) {
+                    double d = 0
+                    for (int k = 0; k < windowSize; k++) {
+                        d += Math.pow(Math.abs(a[i + k] - b[j + k]), p)
+                    }
+                    d = Math.pow(d, 1.0d / p)
+                    ab[i] = Math.min(ab[i], d)
+                    ba[j] = Math.min(ba[j], d)
+                }
+            }
+
+            then:
+            equals(join.profile(), ab, Math.pow(10, -8))
+            equals(join.leftProfile(), ba, Math.pow(10, -8))
+            equals(parallel.profile(), join.profile(), 0)
+            equals(parallel.indexes(), join.indexes())
+            equals(parallel.leftProfile(), join.leftProfile(), 0)
+            equals(parallel.leftIndexes(), join.leftIndexes())
+
+            cleanup:
+            pool.shutdown()
+
+            where:
+            p << [1.0d, 2.0d, 3.0d]
+        }
 }
@@ -0,0 +1,73 @@
+package com.github.eugene.kamenev.tsmp4j.algo.mp.aampi
+
+import com.github.eugene.kamenev.tsmp4j.BaseSpec
+import com.github.eugene.kamenev.tsmp4j.algo.mp.aamp.AAMP
+import com.github.eugene.kamenev.tsmp4j.stats.RollingWindowWithoutStatistics
+
+class AAMPISpec extends BaseSpec {
+
+    public static double ERROR = Math.pow(10, -8)
+
+    def 'test incremental aampi equals batch aamp'() {
+        given:
+        var windowSize = 30
+        var ts = data.stream()
+                .mapToDouble(t -> t.x())
+                .limit(300)
+                .toArray()
+
+        when:
+        var batch = new AAMP(RollingWindowWithoutStatistics.of(ts, windowSize), p).get()
+        var incremental = AAMPI.of(ts, windowSize, 0, p).get()
+
+        var len = ts.length - windowSize + 1
+        double[] left = new double[len]
+        double[] right = new double[len]
+        Arrays.fill(left, Double.POSITIVE_INFINITY)
+        Arrays.fill(right, Double.POSITIVE_INFINITY)
+        for (int i = 0; i < len; i++) {
+            for (int j = i + 16; j < len; j++) {
+                double d = 0
+                for (int k = 0; k < windowSize; k++) {
+                    d += Math.pow(Math.abs(ts[i + k] - ts[j + k]), p)
+                }
+                d = Math.pow(d, 1.0 / p)
+                right[i] = Math.min(right[i], d)
+                left[j] = Math.min(left[j], d)
+            }
+        }
+
+        then:
+        incremental.offset() == 0
+        equals(incremental.profile(), batch.profile(), ERROR)
+        equals(incremental.indexes(), batch.indexes())
+        equals(incremental.leftProfile(), left, ERROR)
+        equals(incremental.rightProfile(), right, ERROR)
+
+        where:
+        p << [1.0d, 2.0d]
+    }
+
+    def 'test incremental aampi with sliding horizon'() {
+        given:
+        var windowSize = 30
+        var historySize = 200
+        var ts = data.stream()
+                .mapToDouble(t -> t.x())
+                .limit(500)
+                .toArray()
+
+        when:
+        var incremental = AAMPI.of(ts, windowSize, historySize, 2).get()
+        var horizon = Arrays.copyOfRange(ts, ts.length - historySize, ts.length)
+        var batch = new AAMP(RollingWindowWithoutStatistics.of(horizon, windowSize), 2).get()
+        var last = incremental.profile().length - 1
+
+        then:
+        incremental.offset() == ts.length - historySize
+        incremental.profile().length == historySize - windowSize + 1
+        // the newest subsequence has seen the whole horizon only
+        incremental.leftIndexes()[last] == batch.indexes()[last]
+        Math.abs(incremental.leftProfile()[last] - batch.profile()[last]) < ERROR
+    }
+}
@@ -2,7 +2,11 @@ package com.github.eugene.kamenev.tsmp4j.algo.mp.mpx
 
 import com.github.eugene.kamenev.tsmp4j.BaseSpec
 import com.github.eugene.kamenev.tsmp4j.algo.mp.DistanceProfileFunction
+import com.github.eugene.kamenev.tsmp4j.algo.mp.FloatMatrixProfile
+import com.github.eugene.kamenev.tsmp4j.algo.tsc.TSCSpec
 
+import java.time.Duration
+import java.util.concurrent.ForkJoinPool
 import java.util.stream.Stream
 
 import static org.hamcrest.Matchers.closeTo
@@ -137,6 +141,93 @@ class MPXSpec extends BaseSpec {
 
     }
 
+    def 'test mpx parallel ab join produces same matrix profile'() {
+        given:
+        var limit = 200
+        var windowSize = 30
+        var pool = new ForkJoinPool(4)
+        var query = data.stream()
+                .limit(120)
+                .mapToDouble(c -> c.y())
+                .toArray()
+        var ts = data.stream()
+                .limit(limit)
+                .mapToDouble(c -> c.x())
+                .toArray()
+
+        when:
+        var serial = new MPX(MPXRollingWindowStatistics.of(ts, windowSize), 0.5d, false)
+        var parallel = new MPX(MPXRollingWindowStatistics.of(ts, windowSize), 0.5d, false, pool)
+        var qs = MPXRollingWindowStatistics.of(query, windowSize)
+        var expected = serial.get(qs)
+        var actual = parallel.get(qs)
+        var oneSided = parallel.get(qs, false)
+        pool.shutdown()
+
+        then:
+        equals(actual.profile(), expected.profile())
+        equals(actual.indexes(), expected.indexes())
+        equals(actual.leftProfile(), expected.leftProfile())
+        equals(actual.leftIndexes(), expected.leftIndexes())
+        equals(oneSided.profile(), expected.profile())
+        equals(oneSided.indexes(), expected.indexes())
+        oneSided.leftProfile() == null
+    }
+
+    def 'test mpx single precision is close to double precision'() {
+        given:
+        var toy = data.stream()
+                .mapToDouble(t -> t.x())
+                .toArray()
+        var query = data.stream()
+                .limit(200)
+                .mapToDouble(t -> t.y())
+                .toArray()
+
+        when:
+        var toyMpx = new MPX(MPXRollingWindowStatistics.of(toy, 30), 0.5d, false)
+        var tscMpx = new MPX(MPXRollingWindowStatistics.of(TSCSpec.data, 180), 0.5d, false)
+        var toyJoin = toyMpx.get(MPXRollingWindowStatistics.of(query, 30))
+        var toyJoinFloat = toyMpx.getFloat(MPXRollingWindowStatistics.of(query, 30))
+
+        then:
+        equals(toyMpx.get().profile(), FloatMatrixProfile.widen(toyMpx.getFloat().profile()), 1e-4)
+        equals(toyMpx.get().indexes(), toyMpx.getFloat().indexes())
+        equals(toyJoin.profile(), FloatMatrixProfile.widen(toyJoinFloat.profile()), 1e-4)
+        equals(toyJoin.leftProfile(), FloatMatrixProfile.widen(toyJoinFloat.leftProfile()), 1e-4)
+        equals(tscMpx.get().profile(), FloatMatrixProfile.widen(tscMpx.getFloat().profile()), 1e-2)
+    }
+
+    def 'test anytime mpx converges to exact matrix profile'() {
+        given:
+        var windowSize = 30
+        var ts = data.stream()
+                .mapToDouble(t -> t.x())
+                .toArray()
+
+        when:
+        var mpx = new MPX(MPXRollingWindowStatistics.of(ts, windowSize), 0.5d, false)
+        var exact = mpx.get()
+        var full = mpx.getAnytime(Integer.MAX_VALUE, null, false, 42L)
+        var stratified = mpx.getAnytime(Integer.MAX_VALUE, null, true, 42L)
+        var partial = mpx.getAnytime(50, Duration.ofMinutes(1), true, 42L)
+        var none = mpx.getAnytime(50, Duration.ZERO, true, 42L)
+
+        then:
+        full.isComplete()
+        full.coverage() == 1.0d
+        equals(full.matrixProfile().profile(), exact.profile())
+        equals(full.matrixProfile().indexes(), exact.indexes())
+        equals(stratified.matrixProfile().profile(), exact.profile())
+        partial.computedDiagonals() == 50
+        partial.coverage() > 0 && partial.coverage() < 1
+        !partial.isComplete()
+        for (int i = 0; i < exact.profile().length; i++) {
+            assert partial.matrixProfile().profile()[i] >= exact.profile()[i] - ERROR
+        }
+        none.computedDiagonals() == 0
+    }
+
     def 'test mpx streaming produces same matrix profile'() {
         given:
         var windowSize = 30
@@ -238,4 +329,24 @@ class MPXSpec extends BaseSpec {
     }
 
     static record Stats(double[] mean, double[] std) {}
+
+    def 'test mpx columns from raw data equal columns from rolling statistics'() {
+        given:
+        var windowSize = 30
+        var ts = data.stream()
+                .mapToDouble(t -> t.x())
+                .toArray()
+        ts[100] = Double.NaN
+
+        when:
+        var expected = MPXColumns.of(MPXRollingWindowStatistics.of(ts, windowSize))
+        var actual = MPXColumns.of(ts, windowSize)
+
+        then:
+        actual.x() == expected.x()
+        actual.mean() == expected.mean()
+        actual.sig() == expected.sig()
+        actual.df() == expected.df()
+        actual.dg() == expected.dg()
+    }
 }
@@ -0,0 +1,74 @@
+package com.github.eugene.kamenev.tsmp4j.algo.mp.mpxi
+
+import com.github.eugene.kamenev.tsmp4j.BaseSpec
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPX
+import com.github.eugene.kamenev.tsmp4j.algo.mp.stomp.STOMP
+
+class MPXISpec extends BaseSpec {
+
+    public static double ERROR = Math.pow(10, -8)
+
+    def 'test incremental mpxi equals batch matrix profile'() {
+        given:
+        var windowSize = 30
+        var ts = data.stream()
+                .mapToDouble(t -> t.x())
+                .limit(300)
+                .toArray()
+
+        when:
+        var mpx = new MPX(windowSize, ts.length, false)
+        var stomp = new STOMP(windowSize, ts.length)
+        for (double x : ts) {
+            mpx.update(x)
+            stomp.update(x)
+        }
+        var batch = mpx.get()
+        var exact = stomp.get()
+        var mpxi = MPXI.of(ts, windowSize, 0)
+        var incremental = mpxi.get()
+        // STOMP excludes one more diagonal than MPX for the same exclusion zone
+        var shifted = new MPXI(windowSize, 0, (windowSize / 2 + 1) / windowSize)
+        for (double x : ts) {
+            shifted.update(x)
+        }
+        var leftRight = shifted.get()
+
+        then:
+        incremental.offset() == 0
+        equals(incremental.indexes(), batch.indexes())
+        equals(incremental.profile(), batch.profile(), ERROR)
+        equals(leftRight.leftIndexes(), exact.leftIndexes())
+        equals(leftRight.rightIndexes(), exact.rightIndexes())
+        equals(leftRight.leftProfile(), exact.leftProfile(), ERROR)
+        equals(leftRight.rightProfile(), exact.rightProfile(), ERROR)
+    }
+
+    def 'test incremental mpxi with sliding horizon'() {
+        given:
+        var windowSize = 30
+        var historySize = 200
+        var ts = data.stream()
+                .mapToDouble(t -> t.x())
+                .limit(500)
+                .toArray()
+
+        when:
+        var mpxi = MPXI.of(ts, windowSize, historySize)
+        var incremental = mpxi.get()
+        var mpx = new MPX(windowSize, historySize, false)
+        for (int i = ts.length - historySize; i < ts.length; i++) {
+            mpx.update(ts[i])
+        }
+        var batch = mpx.get()
+        var last = incremental.profile().length - 1
+
+        then:
+        incremental.offset() == ts.length - historySize
+        incremental.profile().length == historySize - windowSize + 1
+        // the newest subsequence has seen the whole horizon only
+        incremental.leftIndexes()[last] == batch.indexes()[last]
+        Math.abs(incremental.leftProfile()[last] - batch.profile()[last]) < ERROR
+        incremental.leftIndexes().every { it >= -ts.length }
+    }
+}
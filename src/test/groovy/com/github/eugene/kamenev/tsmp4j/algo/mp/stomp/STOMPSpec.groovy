@@ -2,6 +2,7 @@ package com.github.eugene.kamenev.tsmp4j.algo.mp.stomp
 
 import com.github.eugene.kamenev.tsmp4j.BaseSpec
 import com.github.eugene.kamenev.tsmp4j.algo.mp.BaseMatrixProfile
+import com.github.eugene.kamenev.tsmp4j.algo.mp.FloatMatrixProfile
 import com.github.eugene.kamenev.tsmp4j.stats.BaseRollingWindowStatistics
 
 class STOMPSpec extends BaseSpec {
@@ -86,6 +87,71 @@ class STOMPSpec extends BaseSpec {
         equals(mp.leftIndexes(), check.leftIndexes())
     }
 
+    def 'test stomp single precision is close to double precision'() {
+        given:
+        var limit = 200
+        var windowSize = 30
+
+        when:
+        var stomp = new STOMP(windowSize, limit)
+        var query = new BaseRollingWindowStatistics(windowSize, 60)
+
+        data.stream()
+                .mapToDouble(t -> t.x())
+                .limit(limit)
+                .forEach(stomp::update)
+
+        data.stream()
+                .mapToDouble(t -> t.y())
+                .limit(60)
+                .forEach(query::apply)
+
+        var mp = stomp.get()
+        var mpFloat = stomp.getFloat()
+        var join = stomp.get(query)
+        var joinFloat = stomp.getFloat(query)
+
+        then:
+        equals(mp.profile(), FloatMatrixProfile.widen(mpFloat.profile()), 1e-3)
+        equals(mp.indexes(), mpFloat.indexes())
+        equals(mp.leftProfile(), FloatMatrixProfile.widen(mpFloat.leftProfile()), 1e-3)
+        equals(mp.leftIndexes(), mpFloat.leftIndexes())
+        equals(mp.rightProfile(), FloatMatrixProfile.widen(mpFloat.rightProfile()), 1e-3)
+        equals(mp.rightIndexes(), mpFloat.rightIndexes())
+        equals(join.profile(), FloatMatrixProfile.widen(joinFloat.profile()), 1e-3)
+        equals(join.indexes(), joinFloat.indexes())
+    }
+
+    def 'test stomp float exactly repeated subsequence'() {
+        given:
+        int windowSize = 32
+        var random = new Random(21)
+        var ts = new double[600]
+        for (int i = 1; i < ts.length; i++) {
+            ts[i] = ts[i - 1] + random.nextGaussian()
+        }
+        System.arraycopy(ts, 100, ts, 400, 60)
+        var stomp = new STOMP(windowSize, ts.length)
+        Arrays.stream(ts).forEach(stomp::update)
+
+        when:
+        var mp = stomp.getFloat()
+
+        then:
+        for (int i = 0; i < mp.profile().length; i++) {
+            assert !Float.isNaN(mp.profile()[i])
+            assert !Float.isNaN(mp.leftProfile()[i])
+            assert !Float.isNaN(mp.rightProfile()[i])
+        }
+        for (int i = 100; i <= 160 - windowSize; i++) {
+            assert mp.indexes()[i] == i + 300
+            assert mp.indexes()[i + 300] == i
+            assert mp.rightIndexes()[i] == i + 300
+            assert mp.leftIndexes()[i + 300] == i
+            assert mp.profile()[i] < 5e-2f
+        }
+    }
+
     static BaseMatrixProfile loadCheck(String fileName, boolean partial = false) {
         loadData(fileName, (rows) -> {
             var mp = new double[rows.length]
@@ -113,4 +179,51 @@ class STOMPSpec extends BaseSpec {
             return new BaseMatrixProfile(0, 0, mp, pi, rmp, lmp, rpi, lpi)
         }, STOMPSpec)
     }
+
+    def 'test packed range indexes match min so far'() {
+        given:
+        var random = new Random(3)
+        var n = 300
+        var rows = [0, 1, 7, 150, 298, 299]
+        var profiles = rows.collect {
+            var dist = new double[n + 5]
+            for (int k = 0; k < dist.length; k++) {
+                dist[k] = random.nextInt(40) / 4.0d
+                if (random.nextInt(30) == 0) {
+                    dist[k] = random.nextBoolean() ? Double.NaN : Double.POSITIVE_INFINITY
+                }
+            }
+            dist
+        }
+
+        when:
+        var arena = new RangeIndexArena(n)
+        rows.eachWithIndex { int row, int r -> arena.add(profiles[r], n, row) }
+        arena.finish()
+
+        then:
+        rows.eachWithIndex { int row, int r ->
+            var dist = Arrays.copyOf(profiles[r], n)
+            sameRange(arena.get(RangeIndexArena.SUB_TO_LEFT, row),
+                    row == 0 ? null : RangeIndexMatrixProfile.minSoFar(dist, row, 0))
+            sameRange(arena.get(RangeIndexArena.SUB_TO_RIGHT, row),
+                    RangeIndexMatrixProfile.minSoFar(dist, row, n - 1))
+            sameRange(arena.get(RangeIndexArena.LEFT_TO_RIGHT, row),
+                    RangeIndexMatrixProfile.minSoFar(dist, 0, n - 1))
+            sameRange(arena.get(RangeIndexArena.RIGHT_TO_LEFT, row),
+                    RangeIndexMatrixProfile.minSoFar(dist, n - 1, 1))
+        }
+        arena.size(RangeIndexArena.LEFT_TO_RIGHT, 2) == 0
+        arena.get(RangeIndexArena.RIGHT_TO_LEFT, 200) == null
+    }
+
+    private static void sameRange(RangeIndexMatrixProfile.RangeIndex actual,
+                                  RangeIndexMatrixProfile.RangeIndex expected) {
+        if (expected == null) {
+            assert actual == null
+        } else {
+            assert actual.indexes() == expected.indexes()
+            assert actual.values() == expected.values()
+        }
+    }
 }
@@ -1,8 +1,14 @@
 package com.github.eugene.kamenev.tsmp4j.algo.pmp
 
 import com.github.eugene.kamenev.tsmp4j.BaseSpec
+import com.github.eugene.kamenev.tsmp4j.algo.mp.MatrixProfileAlgorithm
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPX
 import com.github.eugene.kamenev.tsmp4j.utils.Util
 
+import java.nio.file.Files
+import java.time.Duration
+import java.util.concurrent.ForkJoinPool
+
 class SKIMPSpec extends BaseSpec {
 
     def 'test skimp no cross correlation'() {
@@ -52,4 +58,159 @@ class SKIMPSpec extends BaseSpec {
         ids[1].length == limit - 4
         ids[2].length == limit - 5
     }
+
+    def 'test parallel skimp publishes every window and equals serial'() {
+        given:
+        var limit = 300
+        var windows = Util.createRange(10, 40, 2)
+        var pool = new ForkJoinPool(4)
+        var serial = new SKIMP(limit, false, windows)
+        var parallel = new SKIMP(limit, false, pool, windows)
+        var serialOrder = []
+        var published = []
+        var thread = Thread.currentThread()
+
+        when:
+        data.stream()
+                .mapToDouble(t -> t.x())
+                .limit(limit)
+                .forEach(x -> {
+                    serial.update(x)
+                    parallel.update(x)
+                })
+        var expected = serial.get((mp, i) -> serialOrder << i)
+        var actual = parallel.get((mp, i) -> {
+            assert Thread.currentThread() == thread
+            assert mp.profile().length == limit - windows[i] + 1
+            published << i
+        })
+
+        then:
+        serialOrder == [0, 8, 4, 12, 2, 6, 10, 14, 1, 3, 5, 7, 9, 11, 13, 15]
+        published.toSorted() == (0..<windows.length).toList()
+        for (int i = 0; i < windows.length; i++) {
+            equals(actual.profile()[i], expected.profile()[i], 0)
+            equals(actual.indexes()[i], expected.indexes()[i])
+        }
+
+        cleanup:
+        pool.shutdown()
+    }
+
+    def 'test skimp shared data store equals mpx per window'() {
+        given:
+        var limit = 300
+        var windows = Util.createRange(10, 40, 3)
+        MatrixProfileAlgorithm[] algos = windows.collect { new MPX(it, limit, false, 0.5d) }
+        var ts = data.stream()
+                .mapToDouble(t -> t.x())
+                .limit(limit)
+                .toArray()
+
+        when:
+        var expected = SKIMP.of(ts, windows, algos)
+        var actual = SKIMP.of(ts, windows, false)
+
+        then:
+        for (int i = 0; i < windows.length; i++) {
+            equals(actual.profile()[i], expected.profile()[i], Math.pow(10, -10))
+            equals(actual.indexes()[i], expected.indexes()[i])
+        }
+    }
+
+    def 'test anytime skimp does not rescale cross correlation of custom algorithms'() {
+        given:
+        var limit = 300
+        var windows = Util.createRange(10, 40, 2)
+        MatrixProfileAlgorithm[] algos = windows.collect { new MPX(it, limit, true, 0.5d) }
+        var skimp = new SKIMP(windows, algos, true)
+        data.stream()
+                .mapToDouble(t -> t.x())
+                .limit(limit)
+                .forEach(skimp::update)
+
+        when:
+        var coarse = skimp.getAnytime(Duration.ZERO)
+
+        then:
+        coarse.evaluatedCount() == 1
+        var source = coarse.panMatrixProfile().profile()[0]
+        for (int i = 1; i < windows.length; i++) {
+            var row = coarse.panMatrixProfile().profile()[i]
+            for (int j = 0; j < row.length; j++) {
+                assert row[j] == source[j]
+            }
+        }
+    }
+
+    def 'test anytime skimp respects time budget and interpolates rows'() {
+        given:
+        var limit = 300
+        var windows = Util.createRange(10, 40, 2)
+        var skimp = new SKIMP(limit, false, windows)
+        data.stream()
+                .mapToDouble(t -> t.x())
+                .limit(limit)
+                .forEach(skimp::update)
+
+        when:
+        var coarse = skimp.getAnytime(Duration.ZERO)
+        var full = skimp.getAnytime(Duration.ofMinutes(1))
+        var exact = skimp.get()
+
+        then:
+        coarse.evaluatedCount() == 1
+        coarse.evaluated()[0]
+        coarse.nearestEvaluated().every { it == 0 }
+        for (int i = 0; i < windows.length; i++) {
+            assert coarse.panMatrixProfile().profile()[i].length == limit - windows[i] + 1
+            assert coarse.panMatrixProfile().indexes()[i].every { it < limit - windows[i] + 1 }
+        }
+        full.isComplete()
+        (0..<windows.length).every { full.nearestEvaluated()[it] == it }
+        for (int i = 0; i < windows.length; i++) {
+            equals(full.panMatrixProfile().profile()[i], exact.profile()[i], 0)
+        }
+    }
+
+    def 'test skimp writes rows into memory mapped pan matrix profile'() {
+        given:
+        var limit = 300
+        var windows = Util.createRange(10, 40, 5)
+        var skimp = new SKIMP(limit, false, windows)
+        data.stream()
+                .mapToDouble(t -> t.x())
+                .limit(limit)
+                .forEach(skimp::update)
+        var file = Files.createTempFile('pmp', '.bin')
+
+        when:
+        var expected = skimp.get()
+        var storage = new MappedPanMatrixProfile(file, limit, windows, singlePrecision)
+        skimp.writeTo(storage)
+        storage.close()
+        var reopened = MappedPanMatrixProfile.open(file)
+        var stored = reopened.toPanMatrixProfile()
+        var column = reopened.column(100)
+        var indexColumn = reopened.indexColumn(100)
+
+        then:
+        for (int i = 0; i < windows.length; i++) {
+            assert reopened.hasRow(i)
+            equals(stored.profile()[i], expected.profile()[i], singlePrecision ? 1e-5 : 0)
+            equals(stored.indexes()[i], expected.indexes()[i])
+            assert Math.abs(column[i] - expected.profile()[i][100]) <= (singlePrecision ? 1e-5 : 0)
+            assert indexColumn[i] == expected.indexes()[i][100]
+            for (int j = 0; j < expected.indexes()[i].length; j += 37) {
+                assert reopened.index(i, j) == expected.indexes()[i][j]
+            }
+        }
+
+        cleanup:
+        reopened?.close()
+        Files.deleteIfExists(file)
+
+        where:
+        singlePrecision << [false, true]
+    }
 }
@@ -0,0 +1,50 @@
+package com.github.eugene.kamenev.tsmp4j.algo.pmp
+
+import com.github.eugene.kamenev.tsmp4j.BaseSpec
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpx.MPX
+
+class VALMODSpec extends BaseSpec {
+
+    def 'test valmod top motifs equal to matrix profile motifs of every window size'() {
+        given:
+        var limit = 500
+        var ts = data.stream().mapToDouble(t -> t.x()).limit(limit).toArray()
+        var valmod = new VALMOD(limit, 10, 40, 3)
+        Arrays.stream(ts).forEach(valmod::update)
+
+        when:
+        var result = valmod.get()
+
+        then:
+        result.windows().length == 31
+        for (int w = 10; w <= 40; w++) {
+            var expected = VALMOD.topMotifs(MPX.of(ts, w), 3)
+            var actual = result.motifs(w)
+            assert actual.length == expected.length
+            for (int k = 0; k < expected.length; k++) {
+                assert actual[k].windowSize() == w
+                assert actual[k].index() == expected[k].index()
+                assert actual[k].neighborIndex() == expected[k].neighborIndex()
+                assert Math.abs(actual[k].distance() - expected[k].distance()) < 1e-6
+            }
+        }
+        result.recomputed()[0] == limit - 10 + 1
+        // lower bounds prune more than 90% of the rows of longer window sizes
+        var rows = (11..40).sum { limit - it + 1 }
+        Arrays.stream(result.recomputed()).skip(1).sum() * 10 < rows
+    }
+
+    def 'test valmod rejects non positive topK'() {
+        when:
+        new VALMOD(100, 10, 20, 0)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        when:
+        VALMOD.of(new double[100], 10, 20, 0)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
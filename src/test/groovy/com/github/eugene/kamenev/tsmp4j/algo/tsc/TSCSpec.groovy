@@ -1,6 +1,8 @@
 package com.github.eugene.kamenev.tsmp4j.algo.tsc;
 
 import com.github.eugene.kamenev.tsmp4j.BaseSpec
+import com.github.eugene.kamenev.tsmp4j.algo.mp.mpxi.MPXI
+import java.util.concurrent.Executors
 
 class TSCSpec extends BaseSpec {
 
@@ -20,4 +22,100 @@ class TSCSpec extends BaseSpec {
         score.score() == 4.0d
         equals(score.predIdxOurs(), validChain)
     }
-}
\ No newline at end of file
+
+    def 'test best score does not depend on offset'() {
+        given:
+        var random = new Random(11)
+        var ts = new double[1000]
+        for (int i = 0; i < ts.length; i++) {
+            ts[i] = Math.sin(2 * Math.PI * i / 100) + 0.1d * random.nextGaussian()
+        }
+        int[][] chains = [[0, 100, 200, 300, 400], [50, 250, 450, 650, 850]]
+        var shifted = Arrays.stream(ts).map(v -> v + offset).toArray()
+
+        when:
+        var expected = TSC.bestScore(ts, chains, 50)
+        var score = TSC.bestScore(shifted, chains, 50)
+
+        then:
+        score.index() == expected.index()
+        score.score() == expected.score()
+        equals(score.predIdxOurs(), expected.predIdxOurs())
+
+        where:
+        offset << [1e4d, 1e6d, 1e8d]
+    }
+
+    def 'test parallel robust time series chains'() {
+        given:
+        var executor = Executors.newFixedThreadPool(3)
+
+        when:
+        def serial = new TSC(180, data.length, 0.25d)
+        def parallel = new TSC(180, data.length, 0.25d, executor)
+        Arrays.stream(data).forEach(v -> {
+            serial.update(v)
+            parallel.update(v)
+        })
+        def chains = parallel.get()
+        def score = parallel.bestScore(chains)
+
+        then:
+        chains == serial.get()
+        score.index() == 9396
+        score.score() == 4.0d
+        equals(score.predIdxOurs(), validChain)
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def 'test incremental time series chains'() {
+        given:
+        int windowSize = 20
+        var random = new Random(9)
+        double[] stream = new double[3000]
+        for (int i = 0; i < stream.length; i++) {
+            // a pattern slowly drifting in shape, embedded in noise
+            var phase = 2 * Math.PI * (i % 60) / 60
+            stream[i] = Math.sin(phase) + (i / 3000.0d) * Math.sin(3 * phase) + random.nextGaussian() * 0.2
+        }
+
+        expect:
+        for (int historySize : [0, 700]) {
+            var tracker = new IncrementalTSC(windowSize, historySize)
+            var mpxi = new MPXI(windowSize, historySize)
+            for (int i = 0; i < stream.length; i++) {
+                tracker.update(stream[i])
+                mpxi.update(stream[i])
+                if (i < windowSize || i % 41 != 0) {
+                    continue
+                }
+                // chains rebuilt from left and right indexes of the horizon
+                int n = mpxi.profileLength()
+                int offset = mpxi.offset()
+                var chains = (0..<n).collect { [it] }
+                var head = (0..<n).collect { it }
+                for (int j = 0; j < n; j++) {
+                    int l = mpxi.leftIndex(j)
+                    if (l >= 0 && mpxi.rightIndex(l) == j) {
+                        head[j] = head[l]
+                        chains[head[j]] << j
+                    }
+                }
+                var all = (0..<n).findAll { head[it] == it }
+                        .collect { chains[it].collect { it + offset } as int[] }
+                int longest = all*.length.max()
+
+                assert tracker.offset() == offset
+                assert tracker.longestChainLength() == longest
+                assert all.any { it == tracker.get() } && tracker.get().length == longest
+                for (var chain : all) {
+                    assert tracker.chain(chain[0]) == chain
+                    assert tracker.chain(chain[-1]) == chain
+                }
+            }
+            assert tracker.longestChainLength() > 2
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.eugene.kamenev.tsmp4j.stats
+
+import com.github.eugene.kamenev.tsmp4j.BaseSpec
+
+class PrefixSumStatisticsSpec extends BaseSpec {
+
+    def 'test prefix sum statistics equal rolling window statistics'() {
+        given:
+        var ts = data.stream()
+                .mapToDouble(t -> t.x())
+                .toArray()
+        var prefix = new PrefixSumStatistics(ts)
+
+        when:
+        var rolling = BaseRollingWindowStatistics.<BaseWindowStatistic> of(ts, windowSize)
+        var len = ts.length - windowSize + 1
+        double[] mean = new double[len]
+        double[] std = new double[len]
+        for (int i = 0; i < len; i++) {
+            mean[i] = rolling.mean(i)
+            std[i] = rolling.stdDev(i)
+        }
+
+        then:
+        equals(prefix.means(windowSize), mean, Math.pow(10, -10))
+        equals(prefix.stdDevs(windowSize), std, Math.pow(10, -10))
+
+        where:
+        windowSize << [3, 30, 100, 400]
+    }
+
+    def 'test prefix sum statistics are stable for large offset'() {
+        given:
+        var random = new Random(42)
+        var ts = new double[100_000]
+        for (int i = 0; i < ts.length; i++) {
+            ts[i] = 1e9 + 1e3 * Math.sin(i / 5000.0d) + random.nextGaussian()
+        }
+        var windowSize = 20
+        var prefix = new PrefixSumStatistics(ts)
+        var rolling = BaseRollingWindowStatistics.<BaseWindowStatistic> of(ts, windowSize)
+
+        when:
+        var prefixError = 0.0d
+        var rollingError = 0.0d
+        for (int i = 0; i < ts.length - windowSize + 1; i += 7) {
+            // two-pass reference on offset-free values, subtraction of the offset is exact
+            var mean = 0.0d
+            for (int k = 0; k < windowSize; k++) {
+                mean += ts[i + k] - 1e9
+            }
+            mean /= windowSize
+            var variance = 0.0d
+            for (int k = 0; k < windowSize; k++) {
+                variance += (ts[i + k] - 1e9 - mean) * (ts[i + k] - 1e9 - mean)
+            }
+            mean += 1e9
+            var std = Math.sqrt(variance / windowSize)
+            prefixError = Math.max(prefixError, Math.abs(prefix.stdDev(i, windowSize) - std) / std)
+            prefixError = Math.max(prefixError, Math.abs(prefix.mean(i, windowSize) - mean) / std)
+            rollingError = Math.max(rollingError, Math.abs(rolling.stdDev(i) - std) / std)
+            rollingError = Math.max(rollingError, Math.abs(rolling.mean(i) - mean) / std)
+        }
+
+        then:
+        prefixError < 1e-8
+        prefixError <= rollingError
+    }
+
+    def 'test prefix sum statistics skip non finite values'() {
+        given:
+        var prefix = new PrefixSumStatistics([1, 2, Double.NaN, 4, 5, 6] as double[])
+
+        expect:
+        prefix.skip(1, 2)
+        !prefix.skip(3, 3)
+        prefix.mean(3, 3) == 5
+        prefix.x(2) == 0
+    }
+}